@@ -0,0 +1,98 @@
+package io.github.smolcan.aggrid.jpa.adapter.benchmark;
+
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.DealType;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Employee;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generated dataset for the benchmarks. Unlike the scenario fixtures it is sized to make the
+ * database and the row mapping do real work, but it is seeded so every run sees the same rows.
+ * <ul>
+ *   <li>{@value #PRODUCT_COUNT} products, each the master of {@code TRADE_COUNT / PRODUCT_COUNT} trades</li>
+ *   <li>{@value #TRADE_COUNT} trades over {@value #PORTFOLIO_COUNT} portfolios and {@value #BOOK_COUNT} books</li>
+ *   <li>an employee forest of {@value #EMPLOYEE_ROOTS} roots, each {@value #EMPLOYEE_DEPTH} levels
+ *   deep with {@value #EMPLOYEE_FAN_OUT} children per node</li>
+ * </ul>
+ */
+public final class BenchmarkData {
+
+    public static final int PRODUCT_COUNT = 50;
+    public static final int TRADE_COUNT = 10_000;
+    public static final int PORTFOLIO_COUNT = 20;
+    public static final int BOOK_COUNT = 30;
+    public static final int EMPLOYEE_ROOTS = 10;
+    public static final int EMPLOYEE_DEPTH = 3;
+    public static final int EMPLOYEE_FAN_OUT = 5;
+
+    private static final int BATCH_SIZE = 500;
+
+    private BenchmarkData() {
+    }
+
+    public static void seed(EntityManager em) {
+        Random random = new Random(42);
+
+        em.getTransaction().begin();
+        List<Product> products = new ArrayList<>();
+        for (long i = 1; i <= PRODUCT_COUNT; i++) {
+            Product product = new Product(i, "Product-" + i);
+            em.persist(product);
+            products.add(product);
+        }
+
+        DealType[] dealTypes = DealType.values();
+        LocalDate firstDay = LocalDate.of(2020, 1, 1);
+        for (long i = 1; i <= TRADE_COUNT; i++) {
+            LocalDate tradeDate = firstDay.plusDays(random.nextInt(5 * 365));
+            em.persist(new Trade(
+                    i,
+                    "Portfolio-" + random.nextInt(PORTFOLIO_COUNT),
+                    "B-" + random.nextInt(BOOK_COUNT),
+                    random.nextInt(1_000),
+                    BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, 2),
+                    random.nextInt(10) == 0 ? null : random.nextDouble() * 10_000,
+                    tradeDate,
+                    LocalDateTime.of(tradeDate, LocalTime.of(random.nextInt(24), random.nextInt(60))),
+                    products.get((int) ((i - 1) % PRODUCT_COUNT)),
+                    random.nextBoolean(),
+                    dealTypes[random.nextInt(dealTypes.length)],
+                    new UUID(0, i)));
+            if (i % BATCH_SIZE == 0) {
+                em.flush();
+                em.clear();
+                // products were detached by the clear, the next trades need managed references
+                products.replaceAll(p -> em.getReference(Product.class, p.getProductId()));
+            }
+        }
+
+        long[] nextId = {1};
+        for (int root = 0; root < EMPLOYEE_ROOTS; root++) {
+            seedEmployee(em, random, nextId, null, "", 1);
+        }
+        em.getTransaction().commit();
+        em.clear();
+    }
+
+    private static void seedEmployee(EntityManager em, Random random, long[] nextId, Employee manager, String parentPath, int level) {
+        long id = nextId[0]++;
+        String path = manager == null ? String.valueOf(id) : parentPath + "/" + id;
+        Employee employee = new Employee(id, "Employee-" + id, BigDecimal.valueOf(random.nextInt(1_000_000), 2), manager, path);
+        em.persist(employee);
+        if (level < EMPLOYEE_DEPTH) {
+            for (int child = 0; child < EMPLOYEE_FAN_OUT; child++) {
+                seedEmployee(em, random, nextId, employee, path, level + 1);
+            }
+        }
+    }
+}
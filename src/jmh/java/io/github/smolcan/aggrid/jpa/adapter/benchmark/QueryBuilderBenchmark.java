@@ -0,0 +1,247 @@
+package io.github.smolcan.aggrid.jpa.adapter.benchmark;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.column.FieldPath;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgNumberColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder.MasterDetailParams;
+import io.github.smolcan.aggrid.jpa.adapter.request.ColumnVO;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.request.SortDirection;
+import io.github.smolcan.aggrid.jpa.adapter.request.SortModelItem;
+import io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Employee;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Employee_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import io.github.smolcan.aggrid.jpa.adapter.test.infrastructure.TestPersistence;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end latency of {@link QueryBuilder} per grid mode: criteria building, the database
+ * round trip on in-memory H2 and the mapping of tuples into row maps. Every benchmark returns
+ * its result so JMH keeps the work alive.
+ * <p>
+ * Run through the {@code benchmark} profile, which also turns on {@code -prof gc}:
+ * <pre>
+ *   ./mvnw -Pbenchmark test-compile exec:exec
+ *   ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="QueryBuilderBenchmark.pivoting"
+ * </pre>
+ * The persistence unit comes from {@link TestPersistence}, so {@code -Dtest.jpa.provider} picks the
+ * provider the same way it does for the scenario tests (pass it through {@code -jvmArgsAppend}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dtest.database=H2", "-Dnet.bytebuddy.experimental=true"})
+@State(Scope.Thread)
+public class QueryBuilderBenchmark {
+
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+
+    private QueryBuilder<Trade, Long, Void> tradeQueryBuilder;
+    private QueryBuilder<Employee, Long, Void> treeQueryBuilder;
+    private QueryBuilder<Product, Long, Trade> masterDetailQueryBuilder;
+
+    private ServerSideGetRowsRequest basicRequest;
+    private ServerSideGetRowsRequest groupingRequest;
+    private ServerSideGetRowsRequest pivotingRequest;
+    private ServerSideGetRowsRequest treeDataRequest;
+    private ServerSideGetRowsRequest masterDetailRequest;
+    private ServerSideGetRowsRequest grandTotalRequest;
+
+    @Setup(Level.Trial)
+    public void startPersistenceAndSeed() {
+        entityManagerFactory = TestPersistence.createEntityManagerFactory();
+        EntityManager em = entityManagerFactory.createEntityManager();
+        BenchmarkData.seed(em);
+        em.close();
+
+        entityManager = entityManagerFactory.createEntityManager();
+        tradeQueryBuilder = QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).enableRowGroup(true, key -> key).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.book).enableRowGroup(true, key -> key).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.submitterId).filter(new AgNumberColumnFilter<>()).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).filter(new AgNumberColumnFilter<>()).build(),
+                        ColDef.builder(Trade_.previousValue).enableValue(true).filter(new AgNumberColumnFilter<>()).build(),
+                        ColDef.builder(Trade_.tradeDate).build(),
+                        ColDef.builder(FieldPath.of(Trade_.product).to(Product_.name)).enablePivot(true).build()
+                )
+                .grandTotalRow(true)
+                .build();
+        treeQueryBuilder = QueryBuilder.builder(Employee.class, Employee_.employeeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Employee_.employeeId).build(),
+                        ColDef.builder(Employee_.name).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Employee_.salary).enableValue(true).build()
+                )
+                .treeData(true)
+                .isServerSideGroupFieldName("isGroup")
+                .treeDataStringToParentIdTypeConverter(Long::valueOf)
+                .treeDataParentReferenceField(Employee_.manager)
+                .treeDataDataPathFieldName(Employee_.path)
+                .treeDataDataPathSeparator("/")
+                .build();
+        masterDetailQueryBuilder = QueryBuilder.builder(Product.class, Product_.productId, Trade.class, entityManager)
+                .colDefs(
+                        ColDef.builder(Product_.productId).build(),
+                        ColDef.builder(Product_.name).build()
+                )
+                .masterDetail(true)
+                .masterDetailLazy(false)
+                .masterDetailRowDataFieldName("detailRows")
+                .masterDetailParams(MasterDetailParams.<Product, Long, Trade>builder()
+                        .detailClass(Trade.class)
+                        .detailColDefs(
+                                ColDef.builder(Trade_.tradeId).build(),
+                                ColDef.builder(Trade_.portfolio).build(),
+                                ColDef.builder(Trade_.currentValue).build()
+                        )
+                        .detailMasterReferenceField(Trade_.product)
+                        .build())
+                .build();
+
+        basicRequest = request(0, 100);
+        basicRequest.getSortModel().add(sortItem("tradeId", SortDirection.asc));
+        basicRequest.getFilterModel().put("portfolio", textFilter("contains", "folio-1"));
+
+        groupingRequest = request(0, 100);
+        groupingRequest.getRowGroupCols().add(column("portfolio", null));
+        groupingRequest.getValueCols().add(column("currentValue", "sum"));
+        groupingRequest.getValueCols().add(column("previousValue", "avg"));
+        groupingRequest.getSortModel().add(sortItem("portfolio", SortDirection.asc));
+
+        pivotingRequest = request(0, 100);
+        pivotingRequest.setPivotMode(true);
+        pivotingRequest.getRowGroupCols().add(column("portfolio", null));
+        pivotingRequest.getPivotCols().add(column("product.name", null));
+        pivotingRequest.getValueCols().add(column("currentValue", "sum"));
+        pivotingRequest.getSortModel().add(sortItem("portfolio", SortDirection.asc));
+
+        treeDataRequest = request(0, 100);
+        treeDataRequest.getGroupKeys().add("1");
+        treeDataRequest.getSortModel().add(sortItem("employeeId", SortDirection.asc));
+
+        masterDetailRequest = request(0, 20);
+        masterDetailRequest.getSortModel().add(sortItem("productId", SortDirection.asc));
+
+        grandTotalRequest = request(0, 100);
+        grandTotalRequest.setNeedsGrandTotal(true);
+        grandTotalRequest.getValueCols().add(column("currentValue", "sum"));
+        grandTotalRequest.getValueCols().add(column("previousValue", "max"));
+        grandTotalRequest.getFilterModel().put("portfolio", textFilter("contains", "folio-1"));
+    }
+
+    @TearDown(Level.Trial)
+    public void closePersistence() {
+        entityManager.close();
+        entityManagerFactory.close();
+    }
+
+    /**
+     * Results are tuples, not entities, so little builds up within an iteration. Clearing per invocation would
+     * put a timestamp and synchronization around every call of these microsecond benchmarks (see {@link Level#Invocation}).
+     */
+    @Setup(Level.Iteration)
+    public void clearPersistenceContext() {
+        entityManager.clear();
+    }
+
+    @Benchmark
+    public LoadSuccessParams basic() {
+        return tradeQueryBuilder.getRows(basicRequest);
+    }
+
+    @Benchmark
+    public LoadSuccessParams grouping() {
+        return tradeQueryBuilder.getRows(groupingRequest);
+    }
+
+    @Benchmark
+    public LoadSuccessParams pivoting() {
+        return tradeQueryBuilder.getRows(pivotingRequest);
+    }
+
+    @Benchmark
+    public LoadSuccessParams treeData() {
+        return treeQueryBuilder.getRows(treeDataRequest);
+    }
+
+    @Benchmark
+    public LoadSuccessParams masterDetail() {
+        return masterDetailQueryBuilder.getRows(masterDetailRequest);
+    }
+
+    @Benchmark
+    public long countRows() {
+        return tradeQueryBuilder.countRows(basicRequest);
+    }
+
+    @Benchmark
+    public Map<String, Object> grandTotal() {
+        return tradeQueryBuilder.getGrandTotalData(grandTotalRequest);
+    }
+
+    private static ServerSideGetRowsRequest request(int startRow, int endRow) {
+        ServerSideGetRowsRequest request = new ServerSideGetRowsRequest();
+        request.setStartRow(startRow);
+        request.setEndRow(endRow);
+        request.setRowGroupCols(new ArrayList<>());
+        request.setValueCols(new ArrayList<>());
+        request.setPivotCols(new ArrayList<>());
+        request.setGroupKeys(new ArrayList<>());
+        request.setSortModel(new ArrayList<>());
+        request.setFilterModel(new HashMap<>());
+        return request;
+    }
+
+    private static SortModelItem sortItem(String colId, SortDirection direction) {
+        SortModelItem item = new SortModelItem();
+        item.setColId(colId);
+        item.setSort(direction);
+        return item;
+    }
+
+    private static ColumnVO column(String field, String aggFunc) {
+        ColumnVO col = new ColumnVO();
+        col.setId(field);
+        col.setField(field);
+        col.setDisplayName(field);
+        col.setAggFunc(aggFunc);
+        return col;
+    }
+
+    private static Map<String, Object> textFilter(String type, String filter) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("filterType", "text");
+        model.put("type", type);
+        model.put("filter", filter);
+        return model;
+    }
+}
@@ -56,6 +56,17 @@ public class ColDef<P, T> {
      * @return the column filter.
      */
     private final IFilter<T, ?, ?> filter;
+    /**
+     * @param headerName the column header in exports ({@code null} for the field name).
+     * @return the column header.
+     */
+    private final String headerName;
+    /**
+     * @param valueFormatter formats the value of this column in exports; gets the selected value, which is
+     *                       not of type {@code T} for aggregations such as count ({@code null} to write the value as it is).
+     * @return the export value formatter.
+     */
+    private final Function<Object, String> valueFormatter;
     
     @NonNull
     public static <P, T> Builder<P, T> builder(@NonNull SingularAttribute<P, T> field) {
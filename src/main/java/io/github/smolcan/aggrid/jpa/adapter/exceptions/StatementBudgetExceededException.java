@@ -0,0 +1,21 @@
+package io.github.smolcan.aggrid.jpa.adapter.exceptions;
+
+
+import lombok.Getter;
+
+/**
+ * This exception is thrown when a single request would issue more statements than the configured budget allows
+ */
+@Getter
+public class StatementBudgetExceededException extends RuntimeException {
+    
+    private final int limit;
+    private final int actualStatements;
+    
+    public StatementBudgetExceededException(int limit, int actualStatements) {
+        super(String.format("Statement budget exceeded, limit: %d, actual statements: %d", limit, actualStatements));
+        this.limit = limit;
+        this.actualStatements = actualStatements;
+    }
+
+}
@@ -0,0 +1,88 @@
+package io.github.smolcan.aggrid.jpa.adapter.export;
+
+import jakarta.persistence.Tuple;
+import lombok.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes an export as CSV (RFC 4180): a header line with the column headers, then one line per row.
+ * Values containing the delimiter, a quote or a line break are quoted.
+ */
+public class CsvExportWriter implements ExportWriter {
+
+    private final Writer writer;
+    private final char delimiter;
+    private List<ExportColumn> columns;
+
+    /**
+     * @param outputStream stream to write UTF-8 CSV to, it is not closed
+     */
+    public CsvExportWriter(@NonNull OutputStream outputStream) {
+        this(outputStream, ',');
+    }
+
+    /**
+     * @param outputStream stream to write UTF-8 CSV to, it is not closed
+     * @param delimiter    value delimiter, e.g. {@code ';'} for locales with a decimal comma
+     */
+    public CsvExportWriter(@NonNull OutputStream outputStream, char delimiter) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        this.delimiter = delimiter;
+    }
+
+    @Override
+    public void begin(@NonNull List<ExportColumn> columns) throws IOException {
+        this.columns = columns;
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                this.writer.write(this.delimiter);
+            }
+            this.writeValue(columns.get(i).getHeader());
+        }
+        this.writer.write("\r\n");
+    }
+
+    @Override
+    public void row(@NonNull Tuple tuple) throws IOException {
+        for (int i = 0; i < this.columns.size(); i++) {
+            if (i > 0) {
+                this.writer.write(this.delimiter);
+            }
+            ExportColumn column = this.columns.get(i);
+            this.writeValue(column.format(tuple.get(column.getIndex())));
+        }
+        this.writer.write("\r\n");
+    }
+
+    @Override
+    public void end() throws IOException {
+        this.writer.flush();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+        boolean quoted = false;
+        for (int i = 0; i < text.length() && !quoted; i++) {
+            char c = text.charAt(i);
+            quoted = c == this.delimiter || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            this.writer.write(text);
+            return;
+        }
+        this.writer.write('"');
+        this.writer.write(text.replace("\"", "\"\""));
+        this.writer.write('"');
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.smolcan.aggrid.jpa.adapter.export;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.function.Function;
+
+/**
+ * A column of an export: where its value is in the result tuple, and how to name and format it.
+ */
+@Getter
+public class ExportColumn {
+
+    /**
+     * @return field of the column, the key of the value in JSON exports
+     */
+    private final String field;
+    /**
+     * @return header of the column in CSV exports
+     */
+    private final String header;
+    /**
+     * @return position of the value in the result tuple
+     */
+    private final int index;
+    /**
+     * @return formatter of the value, {@code null} to write the value as it is
+     */
+    private final Function<Object, String> valueFormatter;
+
+    public ExportColumn(@NonNull String field, @NonNull String header, int index, Function<Object, String> valueFormatter) {
+        this.field = field;
+        this.header = header;
+        this.index = index;
+        this.valueFormatter = valueFormatter;
+    }
+
+    /**
+     * @param value value selected for this column
+     * @return      the formatted value, the value itself if the column has no formatter
+     */
+    public Object format(Object value) {
+        return this.valueFormatter != null ? this.valueFormatter.apply(value) : value;
+    }
+}
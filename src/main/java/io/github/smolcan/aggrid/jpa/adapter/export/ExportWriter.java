@@ -0,0 +1,33 @@
+package io.github.smolcan.aggrid.jpa.adapter.export;
+
+import jakarta.persistence.Tuple;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes the rows of an export as they are read from the database, without building a row map per row.
+ * A writer is used for a single export: {@link #begin} once, {@link #row} for each row, then {@link #end}.
+ */
+public interface ExportWriter {
+
+    /**
+     * @param columns the exported columns, in their order
+     * @throws IOException if writing fails
+     */
+    void begin(@NonNull List<ExportColumn> columns) throws IOException;
+
+    /**
+     * @param tuple the row, its values are at the {@link ExportColumn#getIndex() index} of their column
+     * @throws IOException if writing fails
+     */
+    void row(@NonNull Tuple tuple) throws IOException;
+
+    /**
+     * Flushes what is left, without closing the underlying stream.
+     *
+     * @throws IOException if writing fails
+     */
+    void end() throws IOException;
+}
@@ -0,0 +1,111 @@
+package io.github.smolcan.aggrid.jpa.adapter.export;
+
+import jakarta.persistence.Tuple;
+import lombok.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes an export as newline delimited JSON: one flat object per row, keyed by the column fields.
+ * Numbers and booleans are written as they are, every other value as a string.
+ */
+public class NdjsonExportWriter implements ExportWriter {
+
+    private final Writer writer;
+    // "field": of every column, escaped once
+    private String[] keys;
+    private List<ExportColumn> columns;
+
+    /**
+     * @param outputStream stream to write UTF-8 JSON lines to, it is not closed
+     */
+    public NdjsonExportWriter(@NonNull OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void begin(@NonNull List<ExportColumn> columns) throws IOException {
+        this.columns = columns;
+        this.keys = new String[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            StringBuilder key = new StringBuilder();
+            appendString(key, columns.get(i).getField());
+            this.keys[i] = key.append(':').toString();
+        }
+    }
+
+    @Override
+    public void row(@NonNull Tuple tuple) throws IOException {
+        StringBuilder line = new StringBuilder(64 * this.keys.length);
+        line.append('{');
+        for (int i = 0; i < this.columns.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            ExportColumn column = this.columns.get(i);
+            line.append(this.keys[i]);
+            appendValue(line, column.format(tuple.get(column.getIndex())));
+        }
+        line.append("}\n");
+        this.writer.write(line.toString());
+    }
+
+    @Override
+    public void end() throws IOException {
+        this.writer.flush();
+    }
+
+    private static void appendValue(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof BigDecimal) {
+            out.append(((BigDecimal) value).toPlainString());
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            // JSON has no NaN or infinity
+            out.append(Double.isFinite(number) ? value.toString() : "null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else {
+            appendString(out, value.toString());
+        }
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -5,6 +5,7 @@ import io.github.smolcan.aggrid.jpa.adapter.filter.model.advanced.ColumnAdvanced
 import io.github.smolcan.aggrid.jpa.adapter.filter.model.simple.SimpleFilterModelType;
 import io.github.smolcan.aggrid.jpa.adapter.filter.model.simple.params.TextFilterParams;
 import io.github.smolcan.aggrid.jpa.adapter.filter.model.simple.params.TextMatcherParams;
+import io.github.smolcan.aggrid.jpa.adapter.utils.ParameterBindingCriteriaBuilder;
 import jakarta.persistence.criteria.*;
 import lombok.Getter;
 import lombok.NonNull;
@@ -28,7 +29,7 @@ public class TextAdvancedFilterModel<E> extends ColumnAdvancedFilterModel<E, Str
     @NonNull
     public Predicate toPredicate(@NonNull CriteriaBuilder cb, @NonNull Root<E> root) {
 
-        Expression<String> filterExpression = this.filterParams.generateExpressionFromFilterParams(cb, this.filter != null ? cb.literal(this.filter) : cb.nullLiteral(String.class));
+        Expression<String> filterExpression = this.filterParams.generateExpressionFromFilterParams(cb, this.filter != null ? ParameterBindingCriteriaBuilder.value(cb, this.filter) : cb.nullLiteral(String.class));
         Expression<String> valueExpression = this.filterParams.generateExpressionFromFilterParams(cb, this.getColumnField().getExpression(cb, root));
 
         // check if provided custom text matcher
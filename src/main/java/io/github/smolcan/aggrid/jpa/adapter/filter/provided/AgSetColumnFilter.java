@@ -2,6 +2,7 @@ package io.github.smolcan.aggrid.jpa.adapter.filter.provided;
 
 import io.github.smolcan.aggrid.jpa.adapter.filter.model.simple.SetFilterModel;
 import io.github.smolcan.aggrid.jpa.adapter.filter.model.simple.params.SetFilterParams;
+import io.github.smolcan.aggrid.jpa.adapter.utils.ParameterBindingCriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Predicate;
@@ -79,7 +80,7 @@ public abstract class AgSetColumnFilter<T> extends IProvidedFilter<T, SetFilterM
         Expression<T> columnExpression = this.modifyColumnExpression(cb, expression);
         List<Expression<T>> valueExpressions = filterModel.getValues().stream()
                 .filter(Objects::nonNull)
-                .map(value -> this.parseValueToExpression(cb, value))
+                .map(value -> this.parseValueToExpression(cb, value, expression.getJavaType()))
                 .collect(Collectors.toList());
         // OR predicate
         Predicate predicate = valueExpressions.stream()
@@ -101,6 +102,19 @@ public abstract class AgSetColumnFilter<T> extends IProvidedFilter<T, SetFilterM
     @NonNull
     protected abstract Expression<T> parseValueToExpression(@NonNull CriteriaBuilder cb, @NonNull String value);
 
+    /**
+     * Parses the value compared with a column of the given type, by default regardless of the type.
+     *
+     * @param cb         criteria builder
+     * @param value      the value of the filter model
+     * @param columnType java type of the filtered column, may be null
+     * @return           expression of the value
+     */
+    @NonNull
+    protected Expression<T> parseValueToExpression(@NonNull CriteriaBuilder cb, @NonNull String value, Class<?> columnType) {
+        return this.parseValueToExpression(cb, value);
+    }
+
 
     public static class AgSetStringColumnFilter extends AgSetColumnFilter<String> {
 
@@ -113,7 +127,7 @@ public abstract class AgSetColumnFilter<T> extends IProvidedFilter<T, SetFilterM
         @Override
         @NonNull
         protected Expression<String> parseValueToExpression(@NonNull CriteriaBuilder cb, @NonNull String value) {
-            return this.generateExpressionFromFilterParams(cb, cb.literal(value));
+            return this.generateExpressionFromFilterParams(cb, ParameterBindingCriteriaBuilder.value(cb, value));
         }
 
         /**
@@ -144,7 +158,14 @@ public abstract class AgSetColumnFilter<T> extends IProvidedFilter<T, SetFilterM
         @NonNull
         @SuppressWarnings("unchecked")
         protected Expression<N> parseValueToExpression(@NonNull CriteriaBuilder cb, @NonNull String value) {
-            return (Expression<N>) cb.literal(new BigDecimal(value));
+            return (Expression<N>) ParameterBindingCriteriaBuilder.value(cb, new BigDecimal(value));
+        }
+
+        @Override
+        @NonNull
+        protected Expression<N> parseValueToExpression(@NonNull CriteriaBuilder cb, @NonNull String value, Class<?> columnType) {
+            // bound as the number type of the column, not as a BigDecimal, unless that loses the fraction
+            return ParameterBindingCriteriaBuilder.value(cb, new BigDecimal(value), columnType);
         }
     }
 
@@ -154,7 +175,7 @@ public abstract class AgSetColumnFilter<T> extends IProvidedFilter<T, SetFilterM
         @Override
         @NonNull
         protected Expression<UUID> parseValueToExpression(@NonNull CriteriaBuilder cb, @NonNull String value) {
-            return cb.literal(UUID.fromString(value));
+            return ParameterBindingCriteriaBuilder.value(cb, UUID.fromString(value));
         }
     }
 
@@ -170,7 +191,7 @@ public abstract class AgSetColumnFilter<T> extends IProvidedFilter<T, SetFilterM
         @Override
         @NonNull
         protected Expression<E> parseValueToExpression(@NonNull CriteriaBuilder cb, @NonNull String value) {
-            return cb.literal(Enum.valueOf(this.enumType, value));
+            return ParameterBindingCriteriaBuilder.value(cb, Enum.valueOf(this.enumType, value));
         }
     }
 
@@ -180,7 +201,7 @@ public abstract class AgSetColumnFilter<T> extends IProvidedFilter<T, SetFilterM
         @Override
         @NonNull
         protected Expression<Boolean> parseValueToExpression(@NonNull CriteriaBuilder cb, @NonNull String value) {
-            return cb.literal(parseBoolean(value));
+            return ParameterBindingCriteriaBuilder.value(cb, parseBoolean(value));
         }
 
         @NonNull
@@ -202,7 +223,7 @@ public abstract class AgSetColumnFilter<T> extends IProvidedFilter<T, SetFilterM
         @NonNull
         protected Expression<LocalDate> parseValueToExpression(@NonNull CriteriaBuilder cb, @NonNull String value) {
             // ag-grid sends set filter dates in ISO format (yyyy-MM-dd), which LocalDate.parse handles directly
-            return cb.literal(LocalDate.parse(value));
+            return ParameterBindingCriteriaBuilder.value(cb, LocalDate.parse(value));
         }
     }
 
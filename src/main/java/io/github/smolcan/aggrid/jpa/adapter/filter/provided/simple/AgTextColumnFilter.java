@@ -4,6 +4,7 @@ import io.github.smolcan.aggrid.jpa.adapter.filter.model.simple.SimpleFilterMode
 import io.github.smolcan.aggrid.jpa.adapter.filter.model.simple.TextFilterModel;
 import io.github.smolcan.aggrid.jpa.adapter.filter.model.simple.params.TextFilterParams;
 import io.github.smolcan.aggrid.jpa.adapter.filter.model.simple.params.TextMatcherParams;
+import io.github.smolcan.aggrid.jpa.adapter.utils.ParameterBindingCriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Predicate;
@@ -37,7 +38,7 @@ public class AgTextColumnFilter extends SimpleFilter<String, TextFilterModel, Te
             throw new IllegalArgumentException("Filter type " + filterModel.getType() + " not allowed for this column");
         }
         
-        Expression<String> filterExpression = this.filterParams.generateExpressionFromFilterParams(cb, filterModel.getFilter() != null ? cb.literal(filterModel.getFilter()) : cb.nullLiteral(String.class));
+        Expression<String> filterExpression = this.filterParams.generateExpressionFromFilterParams(cb, filterModel.getFilter() != null ? ParameterBindingCriteriaBuilder.value(cb, filterModel.getFilter()) : cb.nullLiteral(String.class));
         Expression<String> valueExpression = this.filterParams.generateExpressionFromFilterParams(cb, expression);
         
         // check if provided custom text matcher
@@ -4,6 +4,11 @@ import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
 import io.github.smolcan.aggrid.jpa.adapter.column.ColumnSource;
 import io.github.smolcan.aggrid.jpa.adapter.exceptions.InvalidRequestException;
 import io.github.smolcan.aggrid.jpa.adapter.exceptions.OnPivotMaxColumnsExceededException;
+import io.github.smolcan.aggrid.jpa.adapter.exceptions.StatementBudgetExceededException;
+import io.github.smolcan.aggrid.jpa.adapter.export.CsvExportWriter;
+import io.github.smolcan.aggrid.jpa.adapter.export.ExportColumn;
+import io.github.smolcan.aggrid.jpa.adapter.export.ExportWriter;
+import io.github.smolcan.aggrid.jpa.adapter.export.NdjsonExportWriter;
 import io.github.smolcan.aggrid.jpa.adapter.filter.IFilter;
 import io.github.smolcan.aggrid.jpa.adapter.filter.model.JoinOperator;
 import io.github.smolcan.aggrid.jpa.adapter.filter.model.advanced.JoinAdvancedFilterModel;
@@ -11,14 +16,28 @@ import io.github.smolcan.aggrid.jpa.adapter.filter.model.advanced.column.*;
 import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgDateColumnFilter;
 import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgNumberColumnFilter;
 import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.cache.CompiledQuery;
+import io.github.smolcan.aggrid.jpa.adapter.query.cache.CompiledQueryCache;
+import io.github.smolcan.aggrid.jpa.adapter.query.cache.RequestShape;
+import io.github.smolcan.aggrid.jpa.adapter.query.cache.SetFilterValuesCache;
 import io.github.smolcan.aggrid.jpa.adapter.query.metadata.*;
 import io.github.smolcan.aggrid.jpa.adapter.request.*;
 import io.github.smolcan.aggrid.jpa.adapter.filter.model.advanced.AdvancedFilterModel;
+import io.github.smolcan.aggrid.jpa.adapter.response.ColumnarRowData;
 import io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams;
+import io.github.smolcan.aggrid.jpa.adapter.response.SetFilterValueCounts;
+import io.github.smolcan.aggrid.jpa.adapter.response.TypedLoadSuccessParams;
 import io.github.smolcan.aggrid.jpa.adapter.query.metadata.PivotingContext;
+import io.github.smolcan.aggrid.jpa.adapter.query.metrics.GridMode;
+import io.github.smolcan.aggrid.jpa.adapter.query.metrics.QueryMetrics;
+import io.github.smolcan.aggrid.jpa.adapter.query.metrics.QueryMetricsListener;
+import io.github.smolcan.aggrid.jpa.adapter.query.metrics.QueryPhase;
 import io.github.smolcan.aggrid.jpa.adapter.utils.Pair;
+import io.github.smolcan.aggrid.jpa.adapter.utils.ParameterBindingCriteriaBuilder;
 import io.github.smolcan.aggrid.jpa.adapter.utils.TriFunction;
+import io.github.smolcan.aggrid.jpa.adapter.utils.Utils;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Tuple;
 import jakarta.persistence.TupleElement;
 import jakarta.persistence.TypedQuery;
@@ -28,13 +47,23 @@ import jakarta.persistence.metamodel.SingularAttribute;
 import lombok.Getter;
 import lombok.NonNull;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -60,6 +89,12 @@ import static io.github.smolcan.aggrid.jpa.adapter.utils.Utils.cartesianProduct;
  * <li><b>Master-Detail:</b> Supports fetching and mapping detail records for hierarchical grids.</li>
  * </ul>
  *
+ * <h2>Thread Safety</h2>
+ * A built query builder is immutable. Built without an {@link EntityManager}, it can be created once and
+ * shared as a template by all threads, with the entity manager passed to each call
+ * (e.g. {@link #getRows(ServerSideGetRowsRequest, EntityManager)}) or taken from {@code entityManagerSupplier}.
+ * Built with an entity manager, it is as thread-safe as that entity manager.
+ *
  *
  * @param <E> the type of the root JPA entity being queried
  * @param <E_ID> the type of the root JPA entity ID being queried
@@ -70,6 +105,17 @@ import static io.github.smolcan.aggrid.jpa.adapter.utils.Utils.cartesianProduct;
 public class QueryBuilder<E, E_ID, D> {
     protected static final DateTimeFormatter DATE_FORMATTER_FOR_DATE_ADVANCED_FILTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     protected static final String AUTO_GROUP_COLUMN_NAME = "ag-Grid-AutoColumn";
+    protected static final String WINDOW_ROW_COUNT_ALIAS = "ag-Grid-RowCount";
+    // sort values selected for the keyset pagination cursor, suffixed by their position in the order
+    protected static final String KEYSET_ALIAS_PREFIX = "ag-Grid-Keyset-";
+    // primary field selected to fetch the ids of the rows first and their columns by id after
+    protected static final String ROW_ID_ALIAS = "ag-Grid-RowId";
+    // fetch size hints of the providers, JPA has no standard one and ignores unknown hints
+    private static final List<String> FETCH_SIZE_HINTS = List.of("org.hibernate.fetchSize", "eclipselink.jdbc.fetch-size");
+    private static final System.Logger LOGGER = System.getLogger(QueryBuilder.class.getName());
+    // kinds of queries kept in the compiled query cache
+    private static final String ROWS_QUERY = "rows";
+    private static final String COUNT_QUERY = "count";
 
     protected final Class<E> entityClass;
     protected final SingularAttribute<E, E_ID> primaryField;
@@ -87,6 +133,14 @@ public class QueryBuilder<E, E_ID, D> {
     protected final boolean getChildCount;
     protected final String getChildCountFieldName;
     protected final boolean includeRowCountInLoadSuccessParams;
+    protected final boolean rowCountFromLastBlock;
+    protected final Function<CriteriaBuilder, Expression<? extends Number>> rowCountWindowFunction;
+    protected final boolean keysetPagination;
+    // both null unless grand total and row count run in parallel with the page
+    protected final EntityManagerFactory parallelEntityManagerFactory;
+    protected final Executor parallelExecutor;
+    // hands out the entity managers of asynchronous calls, and of all calls when there is no entityManager
+    protected final Supplier<EntityManager> entityManagerSupplier;
     
     protected final boolean isQuickFilterPresent;
     protected final Function<String, List<String>> quickFilterParser;
@@ -112,6 +166,24 @@ public class QueryBuilder<E, E_ID, D> {
     protected final MasterDetailParams<E, E_ID, D> masterDetailParams;
     protected final Function<Map<String, Object>, MasterDetailParams<E, E_ID, D>> dynamicMasterDetailParams;
     protected final boolean grandTotalRow;
+    protected final QueryMetricsListener queryMetricsListener;
+    protected final Integer maxStatementsPerRequest;
+    protected final StatementBudgetAction statementBudgetAction;
+    protected final boolean bindFilterValuesAsParameters;
+    // null when disabled
+    protected final CompiledQueryCache compiledQueryCache;
+    // what the always applied predicate depends on, part of the compiled query cache key
+    protected final Supplier<?> compiledQueryCacheContext;
+    // JDBC fetch size of streamed rows, null for the driver's default
+    protected final Integer streamFetchSize;
+    protected final boolean columnarResponse;
+    protected final boolean fetchIdsFirst;
+    // null when disabled
+    protected final SetFilterValuesCache setFilterValuesCache;
+    // what the always applied predicate depends on, part of the set filter values cache key
+    protected final Supplier<?> setFilterValuesCacheContext;
+    // scope of the public call currently running on each thread
+    private final ThreadLocal<CallScope> callScope = new ThreadLocal<>();
 
 
     protected final Map<String, ColDef<E, ?>> colDefs;
@@ -125,6 +197,37 @@ public class QueryBuilder<E, E_ID, D> {
     public static <E, E_ID, D> Builder<E, E_ID, D> builder(@NonNull Class<E> entityClass, @NonNull SingularAttribute<E, E_ID> primaryField, @NonNull Class<D> detailClass, @NonNull EntityManager entityManager) {
         return new Builder<>(entityClass, primaryField, detailClass, entityManager);
     }
+
+    /**
+     * Builder of a query builder without an entity manager of its own, to be shared between threads.
+     * Each call takes its entity manager as an argument, or from {@code entityManagerSupplier} if configured.
+     *
+     * @param entityClass  the root entity
+     * @param primaryField id of the root entity
+     * @param <E>          root entity type
+     * @param <E_ID>       id type
+     * @return             the builder
+     */
+    @NonNull
+    public static <E, E_ID> Builder<E, E_ID, Void> builder(@NonNull Class<E> entityClass, @NonNull SingularAttribute<E, E_ID> primaryField) {
+        return new Builder<>(entityClass, primaryField, null, null);
+    }
+
+    /**
+     * Master-detail variant of {@link #builder(Class, SingularAttribute)}.
+     *
+     * @param entityClass  the master entity
+     * @param primaryField id of the master entity
+     * @param detailClass  the detail entity
+     * @param <E>          master entity type
+     * @param <E_ID>       id type
+     * @param <D>          detail entity type
+     * @return             the builder
+     */
+    @NonNull
+    public static <E, E_ID, D> Builder<E, E_ID, D> builder(@NonNull Class<E> entityClass, @NonNull SingularAttribute<E, E_ID> primaryField, @NonNull Class<D> detailClass) {
+        return new Builder<>(entityClass, primaryField, detailClass, null);
+    }
     
     protected QueryBuilder(@NonNull Builder<E, E_ID, D> builder) {
         this.entityClass = builder.entityClass;
@@ -137,12 +240,19 @@ public class QueryBuilder<E, E_ID, D> {
         this.groupAggFiltering = builder.groupAggFiltering;
         this.suppressAggFilteredOnly = builder.groupAggFiltering || builder.suppressAggFilteredOnly;
         this.isExternalFilterPresent = builder.isExternalFilterPresent;
-        this.aggFuncs = builder.aggFuncs;
+        // copied, so that reusing the builder cannot change a query builder shared between threads
+        this.aggFuncs = Collections.unmodifiableMap(new HashMap<>(builder.aggFuncs));
         this.doesExternalFilterPass = builder.doesExternalFilterPass;
         this.suppressFieldDotNotation = builder.suppressFieldDotNotation;
         this.getChildCount = builder.getChildCount;
         this.getChildCountFieldName = builder.getChildCountFieldName;
         this.includeRowCountInLoadSuccessParams = builder.includeRowCountInLoadSuccessParams;
+        this.rowCountFromLastBlock = builder.rowCountFromLastBlock;
+        this.rowCountWindowFunction = builder.rowCountWindowFunction;
+        this.keysetPagination = builder.keysetPagination;
+        this.parallelEntityManagerFactory = builder.parallelEntityManagerFactory;
+        this.parallelExecutor = builder.parallelExecutor;
+        this.entityManagerSupplier = builder.entityManagerSupplier;
         this.isQuickFilterPresent = builder.isQuickFilterPresent;
         this.quickFilterParser = builder.quickFilterParser;
         this.quickFilterMatcher = builder.quickFilterMatcher;
@@ -165,8 +275,21 @@ public class QueryBuilder<E, E_ID, D> {
         this.masterDetailParams = builder.masterDetailParams;
         this.dynamicMasterDetailParams = builder.dynamicMasterDetailParams;
         this.grandTotalRow = builder.grandTotalRow;
+        this.queryMetricsListener = builder.queryMetricsListener;
+        this.maxStatementsPerRequest = builder.maxStatementsPerRequest;
+        this.statementBudgetAction = builder.statementBudgetAction;
+        this.bindFilterValuesAsParameters = builder.bindFilterValuesAsParameters;
+        this.compiledQueryCacheContext = builder.compiledQueryCacheContext;
+        this.compiledQueryCache = builder.compiledQueryCacheSize != null
+                ? new CompiledQueryCache(builder.compiledQueryCacheSize, builder.compiledQueryCacheTtl)
+                : null;
+        this.streamFetchSize = builder.streamFetchSize;
+        this.columnarResponse = builder.columnarResponse;
+        this.fetchIdsFirst = builder.fetchIdsFirst;
+        this.setFilterValuesCache = builder.setFilterValuesCache;
+        this.setFilterValuesCacheContext = builder.setFilterValuesCacheContext;
         
-        this.colDefs = builder.colDefs;
+        this.colDefs = Collections.unmodifiableMap(new LinkedHashMap<>(builder.colDefs));
     }
 
 
@@ -188,291 +311,1440 @@ public class QueryBuilder<E, E_ID, D> {
      * @throws OnPivotMaxColumnsExceededException - when number of pivot columns exceeded limit
      */
     @NonNull
-    public LoadSuccessParams getRows(@NonNull ServerSideGetRowsRequest request) {
-        this.validateRequest(request);
-        
-        CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
-        CriteriaQuery<Tuple> query = cb.createTupleQuery();
-        Root<E> root = query.from(this.entityClass);
-        // record all the context we put into query
-        QueryContext<E> queryContext = new QueryContext<>(cb, query, root);
-        
-        this.select(queryContext, request);
-        this.where(queryContext, request);
-        this.groupBy(queryContext, request);
-        this.having(queryContext, request);
-        this.orderBy(queryContext, request);
-        this.limitOffset(queryContext, request);
-        
-        List<Tuple> data = this.apply(query, queryContext);
-        List<Map<String, Object>> resData = this.tupleToMap(data);
-        if (this.masterDetail && !this.masterDetailLazy) {
-            this.attachDetailRowDataToMasters(resData);
-        }
-        
-        LoadSuccessParams loadSuccessParams = new LoadSuccessParams();
-        loadSuccessParams.setRowData(resData);
-        loadSuccessParams.setPivotResultFields(queryContext.getPivotingContext().getPivotingResultFields());
-        if (this.grandTotalRow && request.isNeedsGrandTotal()) {
-            Map<String, Object> grandTotalData = this.getGrandTotalData(request);
-            loadSuccessParams.setGrandTotalData(grandTotalData);
+    public LoadSuccessParams getRows(@NonNull ServerSideGetRowsRequest request) {
+        LoadSuccessParams loadSuccessParams = new LoadSuccessParams();
+        this.loadRows(request, loadSuccessParams, (data, queryContext) -> {
+            if (this.columnarResponse) {
+                loadSuccessParams.setColumnarRowData(this.tupleToColumns(data, queryContext));
+            } else {
+                loadSuccessParams.setRowData(this.tupleToMap(data));
+            }
+        });
+        return loadSuccessParams;
+    }
+
+    /**
+     * {@link #getRows(ServerSideGetRowsRequest)} with the rows as instances of the given row class instead of maps,
+     * which saves the maps when the rows are serialized anyway and types the columns for code post-processing them.
+     * <p>
+     * Columns are matched to the properties of the row class by their field names, {@code product.name} to
+     * {@code productName}. Columns without a property are left out, e.g. pivot result columns when the class
+     * does not declare them. The rows are flat, unlike map rows they do not nest {@code product.name} into a
+     * {@code product} object, so the grid's column fields name the properties. See {@link RowProjection}
+     * for the row classes that can be used.
+     *
+     * @param request the server-side request
+     * @param rowType class of the rows, a record, a bean or a class compiled with {@code -parameters}
+     * @param <R>     the row class
+     * @return        the rows and the rest of the load success params
+     * @throws IllegalArgumentException if the row class can not be created
+     * @throws IllegalStateException    in eager master-detail mode, the detail rows are attached to maps
+     */
+    @NonNull
+    public <R> TypedLoadSuccessParams<R> getRows(@NonNull ServerSideGetRowsRequest request, @NonNull Class<R> rowType) {
+        if (this.masterDetail && !this.masterDetailLazy) {
+            throw new IllegalStateException("Typed rows can not be used with eager master detail, detail rows are attached to map rows");
+        }
+        LoadSuccessParams loadSuccessParams = new LoadSuccessParams();
+        List<R> rows = new ArrayList<>();
+        this.loadRows(request, loadSuccessParams, (data, queryContext) -> rows.addAll(this.tupleToRows(data, rowType)));
+        return TypedLoadSuccessParams.<R>builder()
+                .rowData(rows)
+                .rowCount(loadSuccessParams.getRowCount())
+                .groupLevelInfo(loadSuccessParams.getGroupLevelInfo())
+                .pivotResultFields(loadSuccessParams.getPivotResultFields())
+                .grandTotalData(loadSuccessParams.getGrandTotalData())
+                .cursor(loadSuccessParams.getCursor())
+                .build();
+    }
+
+    /**
+     * Fetches the rows of the request and fills the load success params, except the row data which is left to the caller.
+     *
+     * @param request           the server-side request
+     * @param loadSuccessParams params to fill
+     * @param rowData           sets the row data of the fetched tuples, called once
+     */
+    protected void loadRows(@NonNull ServerSideGetRowsRequest request, @NonNull LoadSuccessParams loadSuccessParams, @NonNull BiConsumer<List<Tuple>, QueryContext<E>> rowData) {
+        CallScope scope = this.openCallScope();
+        List<CompletableFuture<?>> parallel = new ArrayList<>(2);
+        try {
+            // only measured when someone listens
+            QueryMetrics metrics = this.queryMetricsListener != null ? new QueryMetrics() : null;
+            long lap = System.nanoTime();
+            
+            this.validateRequest(request);
+            lap = this.recordPhase(metrics, QueryPhase.VALIDATE_REQUEST, lap);
+
+            // independent of the page, so they can run while it is fetched
+            CompletableFuture<Pair<Map<String, Object>, Long>> grandTotalFuture = null;
+            CompletableFuture<Pair<Long, Long>> rowCountFuture = null;
+            if (this.parallelEntityManagerFactory != null) {
+                if (this.grandTotalRow && request.isNeedsGrandTotal()) {
+                    grandTotalFuture = this.supplyInParallel(scope, () -> this.getGrandTotalData(request));
+                    parallel.add(grandTotalFuture);
+                }
+                // the fetch may make the count unnecessary, then it stays sequential and only runs when needed
+                if (this.includeRowCountInLoadSuccessParams && !this.countsRowsInRowsQuery() && !this.fetchesExtraRow()) {
+                    rowCountFuture = this.supplyInParallel(scope, () -> this.countRows(request));
+                    parallel.add(rowCountFuture);
+                }
+            }
+            
+            RequestShape shape = this.compiledQueryShape(ROWS_QUERY, request);
+            CompiledQuery<Tuple> compiled = shape != null ? this.compiledQueryCache.get(shape) : null;
+            QueryContext<E> queryContext;
+            List<Tuple> data;
+            boolean idsFirst = this.fetchesIdsFirst(request);
+            if (compiled == null) {
+                CriteriaBuilder cb = this.criteriaBuilder();
+                CriteriaQuery<Tuple> query = cb.createTupleQuery();
+                Root<E> root = query.from(this.entityClass);
+                // record all the context we put into query
+                queryContext = new QueryContext<>(cb, query, root);
+
+                if (idsFirst) {
+                    this.selectRowIds(queryContext);
+                } else {
+                    this.select(queryContext, request);
+                }
+                if (this.countsRowsInRowsQuery()) {
+                    queryContext.getSelections().add(
+                            SelectionMetadata.builder()
+                                    .alias(WINDOW_ROW_COUNT_ALIAS)
+                                    .expression(this.rowCountWindowFunction.apply(cb))
+                                    .build()
+                    );
+                }
+                lap = this.recordPhase(metrics, QueryPhase.SELECT, lap);
+                this.where(queryContext, request);
+                lap = this.recordPhase(metrics, QueryPhase.WHERE, lap);
+                this.groupBy(queryContext, request);
+                lap = this.recordPhase(metrics, QueryPhase.GROUP_BY, lap);
+                this.having(queryContext, request);
+                lap = this.recordPhase(metrics, QueryPhase.HAVING, lap);
+                this.orderBy(queryContext, request);
+                lap = this.recordPhase(metrics, QueryPhase.ORDER_BY, lap);
+                this.keyset(queryContext, request);
+                this.limitOffset(queryContext, request);
+                lap = this.recordPhase(metrics, QueryPhase.LIMIT_OFFSET, lap);
+
+                // the query is complete, apply only assembles it, so these are all of its parameters
+                Map<ParameterExpression<?>, Object> parameterBindings = shape != null ? ParameterBindingCriteriaBuilder.pendingBindings(cb) : null;
+                data = this.apply(query, queryContext);
+                if (shape != null) {
+                    this.compiledQueryCache.put(shape, new CompiledQuery<>(query, queryContext, parameterBindings));
+                }
+            } else {
+                @SuppressWarnings("unchecked")
+                QueryContext<E> compiledContext = (QueryContext<E>) compiled.getQueryContext();
+                queryContext = compiledContext;
+                data = this.applyCompiled(compiled, request);
+                if (metrics != null) {
+                    metrics.setCompiledQueryCacheHit(true);
+                }
+            }
+            lap = this.recordPhase(metrics, QueryPhase.APPLY, lap);
+            // row count known from the fetch itself, when the block came back short or the query counted along
+            Long fetchedRowCount = null;
+            if (this.countsRowsInRowsQuery() && !data.isEmpty()) {
+                long counted = ((Number) data.get(0).get(WINDOW_ROW_COUNT_ALIAS)).longValue();
+                // after a seek the window only sees the rows past the cursor
+                fetchedRowCount = this.seeksAfterCursor(request) ? request.getStartRow() + counted : counted;
+            } else if (this.countsRowsInRowsQuery() && request.getStartRow() == 0) {
+                fetchedRowCount = 0L;
+            } else if (this.fetchesExtraRow()) {
+                int blockSize = request.getEndRow() - request.getStartRow();
+                if (data.size() > blockSize) {
+                    // the extra row only proves there are more rows, it belongs to the next block
+                    data = data.subList(0, blockSize);
+                } else if (!data.isEmpty() || request.getStartRow() == 0) {
+                    // an empty block past the start says nothing about where the data ends, that one is still counted
+                    fetchedRowCount = (long) request.getStartRow() + data.size();
+                }
+            }
+            // the cursor and the ids come from the rows query
+            if (this.pagesByKeyset(request) && !data.isEmpty()) {
+                loadSuccessParams.setCursor(this.cursorOf(data.get(data.size() - 1)));
+            }
+            if (idsFirst) {
+                Pair<QueryContext<E>, List<Tuple>> hydrated = this.fetchRowsByIds(data, request);
+                queryContext = hydrated.getKey();
+                data = hydrated.getValue();
+                lap = this.recordPhase(metrics, QueryPhase.FETCH_BY_IDS, lap);
+            }
+            rowData.accept(data, queryContext);
+            lap = this.recordPhase(metrics, QueryPhase.TUPLE_TO_MAP, lap);
+            if (this.masterDetail && !this.masterDetailLazy && loadSuccessParams.getRowData() != null) {
+                this.attachDetailRowDataToMasters(loadSuccessParams.getRowData());
+                lap = this.recordPhase(metrics, QueryPhase.ATTACH_DETAIL_ROW_DATA, lap);
+            }
+            loadSuccessParams.setPivotResultFields(queryContext.getPivotingContext().getPivotingResultFields());
+            if (grandTotalFuture != null) {
+                Pair<Map<String, Object>, Long> grandTotal = this.join(grandTotalFuture);
+                loadSuccessParams.setGrandTotalData(grandTotal.getKey());
+                this.recordParallelPhase(metrics, QueryPhase.GRAND_TOTAL, grandTotal.getValue());
+                lap = System.nanoTime();
+            } else if (this.grandTotalRow && request.isNeedsGrandTotal()) {
+                Map<String, Object> grandTotalData = this.getGrandTotalData(request);
+                loadSuccessParams.setGrandTotalData(grandTotalData);
+                lap = this.recordPhase(metrics, QueryPhase.GRAND_TOTAL, lap);
+            }
+            if (fetchedRowCount != null) {
+                loadSuccessParams.setRowCount(fetchedRowCount);
+            } else if (rowCountFuture != null) {
+                Pair<Long, Long> rowCount = this.join(rowCountFuture);
+                loadSuccessParams.setRowCount(rowCount.getKey());
+                this.recordParallelPhase(metrics, QueryPhase.COUNT_ROWS, rowCount.getValue());
+            } else if (this.includeRowCountInLoadSuccessParams) {
+                loadSuccessParams.setRowCount(this.countRows(request));
+                this.recordPhase(metrics, QueryPhase.COUNT_ROWS, lap);
+            }
+            
+            if (metrics != null) {
+                metrics.setGridMode(queryContext.getGridMode());
+                metrics.setRowCount(data.size());
+                metrics.setStatementCount(scope.getStatementCount());
+                this.queryMetricsListener.onRowsLoaded(metrics);
+            }
+        } finally {
+            // when the page failed, the parts running beside it must not outlive the call
+            this.awaitQuietly(parallel);
+            this.closeCallScope(scope);
+        }
+    }
+
+    /**
+     * Records the time elapsed since {@code lapStart} as the duration of {@code phase}.
+     *
+     * @param metrics   metrics of the current call, {@code null} when no listener is registered
+     * @param phase     the phase that just finished
+     * @param lapStart  {@link System#nanoTime()} at which the phase started
+     * @return          start of the next phase
+     */
+    private long recordPhase(QueryMetrics metrics, @NonNull QueryPhase phase, long lapStart) {
+        if (metrics == null) {
+            return lapStart;
+        }
+        long now = System.nanoTime();
+        metrics.recordPhase(phase, now - lapStart);
+        return now;
+    }
+
+    /**
+     * Records the duration of a phase that ran on another thread.
+     *
+     * @param metrics metrics of the current call, {@code null} when no listener is registered
+     * @param phase   the phase
+     * @param nanos   how long it ran
+     */
+    private void recordParallelPhase(QueryMetrics metrics, @NonNull QueryPhase phase, long nanos) {
+        if (metrics != null) {
+            metrics.recordPhase(phase, nanos);
+        }
+    }
+
+    /**
+     * Runs part of the current call on the parallel executor, with its own entity manager from the
+     * parallel entity manager factory. Its statements count towards the budget of the current call.
+     *
+     * @param parent scope of the current call
+     * @param call   the work, typically another public method of this query builder
+     * @param <T>    result type
+     * @return       future of the result paired with how long it took in nanoseconds
+     */
+    @NonNull
+    protected <T> CompletableFuture<Pair<T, Long>> supplyInParallel(@NonNull CallScope parent, @NonNull Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try (EntityManager entityManager = this.parallelEntityManagerFactory.createEntityManager()) {
+                T result = this.callInScope(parent.fork(entityManager), call);
+                return Pair.of(result, System.nanoTime() - start);
+            }
+        }, this.parallelExecutor);
+    }
+
+    /**
+     * Runs the call with the scope as the current one on this thread, restoring whatever scope was current before.
+     *
+     * @param scope scope to run the call in
+     * @param call  the work
+     * @param <T>   result type
+     * @return      the result of the call
+     */
+    protected <T> T callInScope(@NonNull CallScope scope, @NonNull Supplier<T> call) {
+        CallScope previous = this.callScope.get();
+        this.callScope.set(scope);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                this.callScope.remove();
+            } else {
+                this.callScope.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Runs the call on the executor, on an entity manager of its own taken from {@code entityManagerSupplier}
+     * and closed once the call completes.
+     *
+     * @param call     the work, one of the public methods of this query builder
+     * @param executor executor to run the call on
+     * @param <T>      result type
+     * @return         future of the result
+     * @throws IllegalStateException if no {@code entityManagerSupplier} is configured
+     */
+    @NonNull
+    protected <T> CompletableFuture<T> supplyAsync(@NonNull Supplier<T> call, @NonNull Executor executor) {
+        if (this.entityManagerSupplier == null) {
+            throw new IllegalStateException("Asynchronous calls need an entityManagerSupplier, configure it on the builder");
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try (EntityManager entityManager = this.entityManagerSupplier.get()) {
+                return this.callInScope(CallScope.on(entityManager), call);
+            }
+        }, executor);
+    }
+
+    /**
+     * Waits for work started by {@link #supplyInParallel} to finish, ignoring how it finished. Called before
+     * the call that started it ends, so that none of it keeps running on the call's scope after an exception
+     * the call throws instead of joining it.
+     *
+     * @param futures the work, finished or still running
+     */
+    protected void awaitQuietly(@NonNull Collection<? extends CompletableFuture<?>> futures) {
+        for (CompletableFuture<?> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException | CancellationException e) {
+                // joined already or failed beside the exception of the call itself
+            }
+        }
+    }
+
+    /**
+     * Waits for work started by {@link #supplyInParallel}, rethrowing its exception as it was thrown.
+     *
+     * @param future the running work
+     * @param <T>    result type
+     * @return       the result
+     */
+    protected <T> T join(@NonNull CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Entity manager for the current call: the one of a parallel part when running in one,
+     * the query builder's otherwise.
+     *
+     * @return entity manager to run the queries of the current call on
+     */
+    @NonNull
+    protected EntityManager entityManager() {
+        CallScope scope = this.callScope.get();
+        if (scope != null && scope.entityManager != null) {
+            return scope.entityManager;
+        }
+        if (this.entityManager == null) {
+            throw new IllegalStateException("No EntityManager for this call, pass one to the call or configure an entityManagerSupplier");
+        }
+        return this.entityManager;
+    }
+
+    /**
+     * Opens the scope of a public call, or joins the one already open on this thread when the call
+     * is made from inside another (e.g. {@link #countRows} from {@link #getRows}), so that everything
+     * a single grid request triggers is counted together.
+     *
+     * @return the scope to pass to {@link #closeCallScope(CallScope)}
+     */
+    @NonNull
+    protected CallScope openCallScope() {
+        CallScope scope = this.callScope.get();
+        if (scope == null) {
+            scope = new CallScope();
+            if (this.entityManager == null && this.entityManagerSupplier != null) {
+                scope.entityManager = this.entityManagerSupplier.get();
+                scope.ownsEntityManager = true;
+            }
+            this.callScope.set(scope);
+        }
+        scope.depth++;
+        return scope;
+    }
+
+    /**
+     * Leaves the scope opened by {@link #openCallScope()}, discarding it once the outermost call returns.
+     *
+     * @param scope the scope returned by {@link #openCallScope()}
+     */
+    protected void closeCallScope(@NonNull CallScope scope) {
+        if (--scope.depth == 0) {
+            this.callScope.remove();
+            if (scope.ownsEntityManager) {
+                scope.entityManager.close();
+            }
+        }
+    }
+
+    /**
+     * Criteria builder for the current call. With {@code bindFilterValuesAsParameters} turned on, one
+     * {@link ParameterBindingCriteriaBuilder} is shared by everything the call builds, so the values it
+     * turned into parameters can be bound in {@link #createQuery(CriteriaQuery)}.
+     *
+     * @return criteria builder to build the queries of the current call with
+     */
+    @NonNull
+    protected CriteriaBuilder criteriaBuilder() {
+        CallScope scope = this.callScope.get();
+        if (scope == null || !this.bindFilterValuesAsParameters) {
+            return this.entityManager().getCriteriaBuilder();
+        }
+        if (scope.criteriaBuilder == null) {
+            scope.criteriaBuilder = ParameterBindingCriteriaBuilder.wrap(this.entityManager().getCriteriaBuilder());
+        }
+        return scope.criteriaBuilder;
+    }
+
+    /**
+     * Creates the typed query for the criteria query, counting it against the statement budget
+     * of the current call.
+     *
+     * @param query criteria query to create
+     * @param <T>   result type
+     * @return      the typed query
+     * @throws StatementBudgetExceededException if the statement would exceed {@code maxStatementsPerRequest}
+     *                                          and the budget action is {@link StatementBudgetAction#THROW}
+     */
+    @NonNull
+    protected <T> TypedQuery<T> createQuery(@NonNull CriteriaQuery<T> query) {
+        CallScope scope = this.callScope.get();
+        if (scope != null) {
+            int statementCount = scope.statements.incrementAndGet();
+            if (this.maxStatementsPerRequest != null && statementCount > this.maxStatementsPerRequest) {
+                if (this.statementBudgetAction == StatementBudgetAction.THROW) {
+                    throw new StatementBudgetExceededException(this.maxStatementsPerRequest, statementCount);
+                }
+                // log only the first overrun, an N+1 loop would flood the log otherwise
+                if (statementCount == this.maxStatementsPerRequest + 1) {
+                    LOGGER.log(System.Logger.Level.WARNING, new StatementBudgetExceededException(this.maxStatementsPerRequest, statementCount).getMessage());
+                }
+            }
+        }
+        TypedQuery<T> typedQuery = this.entityManager().createQuery(query);
+        if (scope != null && scope.criteriaBuilder != null) {
+            ParameterBindingCriteriaBuilder.bindParameters(scope.criteriaBuilder, query, typedQuery);
+        }
+        return typedQuery;
+    }
+
+    /**
+     * Shape under which the query of the given kind is cached for the request.
+     * Requests pivoting on columns are never cached, their columns depend on the pivot values in the data,
+     * nor are grouped requests with {@code groupAggFiltering}, their predicates depend on whether the expanded
+     * parent groups match the filters, which is queried while the query is built.
+     * Neither is anything while an always applied predicate is configured without a compiled query cache
+     * context, the predicate may depend on who is asking and the request does not tell.
+     *
+     * @param queryKind which query of the request is built
+     * @param request   the request
+     * @return          the shape, {@code null} when the query must be built
+     */
+    protected RequestShape compiledQueryShape(@NonNull String queryKind, @NonNull ServerSideGetRowsRequest request) {
+        if (this.compiledQueryCache == null || (request.isPivotMode() && !request.getPivotCols().isEmpty())) {
+            return null;
+        }
+        if (this.groupAggFiltering && !request.getRowGroupCols().isEmpty()) {
+            return null;
+        }
+        if (this.alwaysAppliedPredicate != null && this.compiledQueryCacheContext == null) {
+            return null;
+        }
+        Object context = this.compiledQueryCacheContext != null ? this.compiledQueryCacheContext.get() : null;
+        return RequestShape.of(queryKind, request, context);
+    }
+
+    /**
+     * Executes a cached rows query for the row window of the request.
+     *
+     * @param compiled the cached query
+     * @param request  the request
+     * @return         fetched tuples
+     */
+    @NonNull
+    protected List<Tuple> applyCompiled(@NonNull CompiledQuery<Tuple> compiled, @NonNull ServerSideGetRowsRequest request) {
+        QueryContext<?> compiledContext = compiled.getQueryContext();
+        // the cached context is shared, the window goes into a throwaway one
+        QueryContext<E> windowContext = new QueryContext<>(compiledContext.getCriteriaBuilder(), compiledContext.getQuery(), this.castRoot(compiledContext.getRoot()));
+        windowContext.setKeysetParameters(compiledContext.getKeysetParameters());
+        this.limitOffset(windowContext, request);
+
+        TypedQuery<Tuple> typedQuery = this.createQuery(compiled.getQuery());
+        compiled.bind(typedQuery);
+        this.bindKeyset(typedQuery, windowContext);
+        typedQuery.setFirstResult(windowContext.getFirstResult());
+        typedQuery.setMaxResults(windowContext.getMaxResults());
+        return typedQuery.getResultList();
+    }
+
+    private long countAndCache(RequestShape shape, CriteriaQuery<Long> query, CriteriaBuilder cb) {
+        Map<ParameterExpression<?>, Object> parameterBindings = shape != null ? ParameterBindingCriteriaBuilder.pendingBindings(cb) : null;
+        long count = this.createQuery(query).getSingleResult();
+        if (shape != null) {
+            this.compiledQueryCache.put(shape, new CompiledQuery<>(query, null, parameterBindings));
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Root<E> castRoot(Root<?> root) {
+        return (Root<E>) root;
+    }
+
+    /**
+     * Drops every cached compiled query, e.g. after data that filters resolve against has changed.
+     * Does nothing when the compiled query cache is disabled.
+     */
+    public void invalidateCompiledQueries() {
+        if (this.compiledQueryCache != null) {
+            this.compiledQueryCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Drops the cached set filter values of a column in every context and of every query builder of the entity
+     * sharing the cache, e.g. after its values changed.
+     * Does nothing when the set filter values cache is disabled.
+     *
+     * @param fieldName the column
+     */
+    public void invalidateSetFilterValues(@NonNull String fieldName) {
+        if (this.setFilterValuesCache != null) {
+            this.setFilterValuesCache.invalidate(this.entityClass, fieldName);
+        }
+    }
+
+    /**
+     * Drops the cached set filter values of every column of this query builder.
+     * Does nothing when the set filter values cache is disabled.
+     */
+    public void invalidateSetFilterValues() {
+        if (this.setFilterValuesCache != null) {
+            this.colDefs.keySet().forEach(fieldName -> this.setFilterValuesCache.invalidate(this.entityClass, fieldName));
+        }
+    }
+
+    /**
+     * Counts the number of rows or groups that match the criteria specified in the request.
+     * <p>
+     * This method determines the total count of rows or groups based on the filtering and grouping
+     * specifications in the provided {@link ServerSideGetRowsRequest}. The behavior differs depending
+     * on whether the request contains row grouping:
+     * <ul>
+     *   <li>If no grouping is applied, it counts the total number of entity rows that match the filter criteria.</li>
+     *   <li>If grouping is applied, it counts the distinct values of the root group column that would be displayed
+     *       at the current grouping level, taking into account all filters and having conditions.</li>
+     * </ul>
+     * <p>
+     *     
+     * This count can be used for server-side pagination calculations or to determine the total
+     * number of rows/groups available when displaying partial results.
+     *
+     * @param request The {@link ServerSideGetRowsRequest} containing filtering, grouping, and other criteria information.
+     * @return The count of rows or groups that match the criteria in the request.
+     * @throws OnPivotMaxColumnsExceededException If the number of pivot columns to be generated exceeds the configured limit.
+     * @see #getRows(ServerSideGetRowsRequest) For retrieving the actual row data.
+     */
+    @SuppressWarnings("unchecked")
+    public long countRows(@NonNull ServerSideGetRowsRequest request) throws OnPivotMaxColumnsExceededException {
+        CallScope scope = this.openCallScope();
+        try {
+            this.validateRequest(request);
+
+            RequestShape shape = this.compiledQueryShape(COUNT_QUERY, request);
+            CompiledQuery<Long> compiled = shape != null ? this.compiledQueryCache.get(shape) : null;
+            if (compiled != null) {
+                TypedQuery<Long> typedQuery = this.createQuery(compiled.getQuery());
+                compiled.bind(typedQuery);
+                return typedQuery.getSingleResult();
+            }
+
+            CriteriaBuilder cb = this.criteriaBuilder();
+            CriteriaQuery<Long> query = cb.createQuery(Long.class);
+            Root<E> root = query.from(this.entityClass);
+            // record all the context we put into query
+            QueryContext<E> queryContext = new QueryContext<>(cb, query, root);
+            
+            // we count groups when there is grouping
+            boolean hasGroupCols = !request.getRowGroupCols().isEmpty();
+            boolean countingGroups = hasGroupCols;
+            if (hasGroupCols && this.paginateChildRows) {
+                // if paginateChildRows is turned on and all groups are expanded, we count records inside group (not counting groups)
+                boolean allGroupsExpanded = request.getRowGroupCols().size() == request.getGroupKeys().size();
+                if (allGroupsExpanded) {
+                    countingGroups = false;
+                }
+            }
+            
+            if (countingGroups) {
+                // select the group col that we are counting
+                int countingGroupColIndex = this.paginateChildRows
+                        // when paginating child rows, we count the first unexpanded group (next after last group key)
+                        ? request.getGroupKeys().size()
+                        // otherwise, we count root group
+                        : 0;
+                String countingGroupCol = request.getRowGroupCols().get(countingGroupColIndex).getId();
+                ColDef<E, ?> countingGroupColDef = this.colDefs.get(countingGroupCol);
+
+                // subquery will only select the group column 
+                Subquery<?> subquery = query.subquery(countingGroupColDef.getField().getExpression(cb, root).getJavaType());
+                Root<E> subqueryRoot = subquery.from(this.entityClass);
+                QueryContext<E> subqueryContext = new QueryContext<>(cb, subquery, subqueryRoot);
+                
+                this.select(subqueryContext, request);
+                this.where(subqueryContext, request);
+                this.groupBy(subqueryContext, request);
+                this.having(subqueryContext, request);
+                
+                // select the group column in subquery
+                subquery.select((Expression) countingGroupColDef.getField().getExpression(cb, subqueryRoot));
+                // where
+                if (!subqueryContext.getWherePredicates().isEmpty()) {
+                    Predicate[] predicates = subqueryContext.getWherePredicates().stream().map(WherePredicateMetadata::getPredicate).toArray(Predicate[]::new);
+                    subquery.where(predicates);
+                }
+                // group by
+                if (!subqueryContext.getGrouping().isEmpty()) {
+                    subquery.groupBy(subqueryContext.getGrouping().stream().map(GroupingMetadata::getGropingExpression).collect(Collectors.toList()));
+                }
+                // having
+                if (!subqueryContext.getHaving().isEmpty()) {
+                    Predicate[] having = subqueryContext.getHaving().stream().map(HavingMetadata::getPredicate).toArray(Predicate[]::new);
+                    subquery.having(having);
+                }
+                
+                // in parent query, count distinct values of column group that are returned in subquery
+                query.select(cb.countDistinct(countingGroupColDef.getField().getExpression(cb, root)));
+                query.where(cb.in(countingGroupColDef.getField().getExpression(cb, root)).value((Subquery) subquery));
+                
+                return this.countAndCache(shape, query, cb);
+            } else {
+                // no groups, count rows
+                // nothing is selected but the count, selecting the columns would only leave their joins in the query
+                this.where(queryContext, request);
+                
+                query.select(cb.count(root));
+                if (!queryContext.getWherePredicates().isEmpty()) {
+                    Predicate[] predicates = queryContext.getWherePredicates().stream().map(WherePredicateMetadata::getPredicate).toArray(Predicate[]::new);
+                    query.where(predicates);
+                }
+                
+                return this.countAndCache(shape, query, cb);
+            }
+        } finally {
+            this.closeCallScope(scope);
+        }
+    }
+    
+    /**
+     * Computes aggregated values across all rows matching the request filters,
+     * intended to populate the grid's grand total row.
+     *
+     * @param request the AG Grid server-side request containing value columns and filters.
+     * @return a map of aggregated values keyed by field name.
+     * @throws IllegalStateException if the grand total row is not enabled on this {@code QueryBuilder}.
+     */
+    @NonNull
+    public Map<String, Object> getGrandTotalData(@NonNull ServerSideGetRowsRequest request) {
+        CallScope scope = this.openCallScope();
+        try {
+            if (!this.grandTotalRow) {
+                throw new IllegalStateException("Grand total row is disabled, enable it to get grand total data");
+            }
+            
+            this.validateRequest(request);
+            if (request.getValueCols().isEmpty()) {
+                return Collections.emptyMap();
+            }
+            
+            CriteriaBuilder cb = this.criteriaBuilder();
+            CriteriaQuery<Tuple> query = cb.createTupleQuery();
+            Root<E> root = query.from(this.entityClass);
+            // record all the context we put into query
+            QueryContext<E> queryContext = new QueryContext<>(cb, query, root);
+
+            // select value cols
+            for (ColumnVO columnVO : request.getValueCols()) {
+                Expression<?> path = this.colDefs.get(columnVO.getField()).getField().getExpression(cb, root);
+                var aggregateFunction = this.aggFuncs.get(columnVO.getAggFunc());
+                Expression<?> aggregatedField = aggregateFunction.apply(cb, path);
+                queryContext.getSelections().add(
+                        SelectionMetadata
+                                .builder()
+                                .alias(columnVO.getField())
+                                .expression(aggregatedField)
+                                .isAggregationSelection(true)
+                                .build()
+                );
+            }
+            // filter
+            this.where(queryContext, request);
+            // remove the ones that filter group keys
+            if (!request.getGroupKeys().isEmpty()) {
+                queryContext.setWherePredicates(
+                        queryContext.getWherePredicates()
+                                .stream()
+                                .filter(p -> !p.isGroupPredicate())
+                                .collect(Collectors.toList())
+                );
+            }
+            
+            
+            // apply
+            query.select(cb.tuple(queryContext.getSelections().stream().map(s -> s.getExpression().alias(s.getAlias())).toArray(Selection<?>[]::new)));
+            if (!queryContext.getWherePredicates().isEmpty()) {
+                Predicate[] predicates = queryContext.getWherePredicates().stream().map(WherePredicateMetadata::getPredicate).toArray(Predicate[]::new);
+                query.where(predicates);
+            }
+            Tuple data = this.createQuery(query).getSingleResult();
+            
+            return this.tupleToMap(List.of(data)).get(0);
+        } finally {
+            this.closeCallScope(scope);
+        }
+    }
+
+    /**
+     * Retrieves the detail row data for a specific master row in Master-Detail mode.
+     * <p>
+     * This method executes a query to fetch child records associated with the provided
+     * {@code masterRow}, applying any dynamic class resolution or column definitions if configured.
+     *
+     * @param masterRow the data of the parent row for which details are being requested
+     * @return a list of maps representing the detail rows
+     */
+    @NonNull
+    public List<Map<String, Object>> getDetailRowData(@NonNull Map<String, Object> masterRow) {
+        CallScope scope = this.openCallScope();
+        try {
+            if (!this.masterDetail) {
+                throw new IllegalStateException("Please set masterDetail property to true to use detail row data");
+            }
+            
+            // find params for detail grid
+            MasterDetailParams<E, E_ID, D> params = this.dynamicMasterDetailParams != null
+                    ? this.dynamicMasterDetailParams.apply(masterRow)   // dynamic
+                    : this.masterDetailParams;                          // static
+            
+            CriteriaBuilder cb = this.criteriaBuilder();
+            CriteriaQuery<Tuple> query = cb.createTupleQuery();
+            Root<D> root = query.from(params.getDetailClass());
+            
+            // select
+            query.select(cb.tuple(
+                    params.getDetailColDefs().values().stream()
+                    .map(colDef -> params.getDetailColDefs().get(colDef.getFieldName()).getField().getExpression(cb, root).alias(colDef.getFieldName()))
+                    .toArray(Selection<?>[]::new)
+            ));
+
+            // master predicate
+            List<Predicate> predicates = new ArrayList<>(2);
+            predicates.add(this.createMasterRowPredicate(cb, root, masterRow, params));
+            if (params.getAlwaysAppliedDetailPredicate() != null) {
+                predicates.add(params.getAlwaysAppliedDetailPredicate().apply(cb, root));
+            }
+            query.where(predicates.toArray(Predicate[]::new));
+
+            // result
+            TypedQuery<Tuple> typedQuery = this.createQuery(query);
+            List<Tuple> data = typedQuery.getResultList();
+            return this.tupleToMap(data);
+        } finally {
+            this.closeCallScope(scope);
+        }
+    }
+
+    /**
+     * Supplies a list of unique values for an AG Grid Set Filter for the specified field.
+     * Fetches distinct values from the database and returns them sorted in ascending order.
+     *
+     * @param <T> the value type of the column.
+     * @param field the column field path to retrieve unique values for.
+     * @return a sorted list of distinct values present in the database.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public <T> List<T> supplySetFilterValues(@NonNull ColumnSource<E, T> field) {
+        ColDef<E, T> colDef = (ColDef<E, T>) this.colDefs.get(field.getName());
+        if (colDef == null) {
+            throw new IllegalArgumentException(String.format("Column definition for field '%s' not found.", field));
+        }
+        if (colDef.getFilter() == null) {
+            throw new IllegalStateException(String.format("Filter not enabled for field '%s'.", field));
+        }
+        if (this.setFilterValuesCache == null || (this.alwaysAppliedPredicate != null && this.setFilterValuesCacheContext == null)) {
+            // the always applied predicate may depend on who is asking, without a context the values can not be told apart
+            return this.loadSetFilterValues(colDef, null);
+        }
+
+        // looked up before an entity manager is taken for the call
+        Object context = this.setFilterValuesCacheContext != null ? this.setFilterValuesCacheContext.get() : null;
+        List<Object> cached = this.setFilterValuesCache.get(this.entityClass, this, colDef.getFieldName(), context);
+        if (cached == null) {
+            cached = this.setFilterValuesCache.put(this.entityClass, this, colDef.getFieldName(), context, this.loadSetFilterValues(colDef, null));
+        }
+        // the cached list is shared, callers get their own
+        return (List<T>) new ArrayList<>(cached);
+    }
+
+    /**
+     * Supplies the values of a set filter that match the text typed into its mini filter, one page at a time.
+     * The search and the paging are done by the database, so columns with many distinct values
+     * do not have to be loaded whole. Only text columns can be searched: the text form of other values
+     * differs between databases, their set filter values are paged without search text.
+     * <p>
+     * With a {@link SetFilterValuesRequest#getRowsRequest() rows request}, only values of the rows that pass its
+     * other filters are supplied, the filter of the column itself is left out. Advanced filters apply whole.
+     * <p>
+     * A request without search text, paging and other filters supplies all values, from the set filter values cache
+     * if enabled; other requests always run a query.
+     *
+     * @param request the column, search text and page
+     * @return the matching values, sorted in ascending order
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public List<Object> supplySetFilterValues(@NonNull SetFilterValuesRequest request) {
+        ColDef<E, ?> colDef = this.validateSetFilterValuesRequest(request);
+        request = this.withOtherFiltersOnly(request);
+        boolean searches = request.getSearchText() != null && !request.getSearchText().isEmpty();
+        if (!searches && request.getOffset() == 0 && request.getLimit() == null && request.getRowsRequest() == null) {
+            return (List<Object>) this.supplySetFilterValues(colDef.getField());
+        }
+        if (request.getLimit() != null && request.getLimit() == 0) {
+            return new ArrayList<>();
+        }
+        return (List<Object>) this.loadSetFilterValues(colDef, request);
+    }
+
+    /**
+     * Supplies the values of a set filter with the number of rows having each value, counted by one grouped query
+     * under the same search and filters as {@link #supplySetFilterValues(SetFilterValuesRequest)}.
+     * <p>
+     * With {@link SetFilterValuesRequest#getTop() top} set, only the values with the most rows are listed,
+     * the most rows first, and the rows having any other value are counted together, by a second query
+     * only when there can be other values. Otherwise all values are listed in ascending order, paged by offset and limit.
+     *
+     * @param request the column, search text, page or top and other filters
+     * @return the values with their counts
+     */
+    @NonNull
+    public SetFilterValueCounts supplySetFilterValuesWithCounts(@NonNull SetFilterValuesRequest request) {
+        ColDef<E, ?> colDef = this.validateSetFilterValuesRequest(request);
+        if (request.getTop() != null && request.getTop() < 0) {
+            throw new InvalidRequestException("top", "Top must not be negative.");
+        }
+        if (request.getTop() != null && (request.getOffset() != 0 || request.getLimit() != null)) {
+            throw new InvalidRequestException("top", "Top values cannot be paged by offset and limit.");
+        }
+        request = this.withOtherFiltersOnly(request);
+
+        CallScope scope = this.openCallScope();
+        try {
+            CriteriaBuilder cb = this.criteriaBuilder();
+            CriteriaQuery<Tuple> query = cb.createTupleQuery();
+            Root<E> root = query.from(this.entityClass);
+            Expression<?> path = colDef.getField().getExpression(cb, root);
+            Expression<Long> count = cb.count(root);
+
+            query.multiselect(path, count).groupBy(path);
+            List<Predicate> predicates = this.setFilterValuesPredicates(cb, query, root, path, request);
+            if (!predicates.isEmpty()) {
+                query.where(predicates.toArray(new Predicate[0]));
+            }
+            query.orderBy(request.getTop() != null
+                    ? List.of(cb.desc(count), cb.asc(path))
+                    : List.of(cb.asc(path)));
+
+            TypedQuery<Tuple> typedQuery = this.createQuery(query);
+            if (request.getTop() != null) {
+                typedQuery.setMaxResults(request.getTop());
+            } else {
+                typedQuery.setFirstResult(request.getOffset());
+                if (request.getLimit() != null) {
+                    typedQuery.setMaxResults(request.getLimit());
+                }
+            }
+            List<Tuple> tuples = typedQuery.getResultList();
+
+            List<SetFilterValueCounts.ValueCount> values = new ArrayList<>(tuples.size());
+            long listedCount = 0;
+            for (Tuple tuple : tuples) {
+                long valueCount = tuple.get(1, Long.class);
+                values.add(new SetFilterValueCounts.ValueCount(tuple.get(0), valueCount));
+                listedCount += valueCount;
+            }
+
+            long otherCount = 0;
+            if (request.getTop() != null && tuples.size() == request.getTop()) {
+                // there may be more values, everything the listed ones leave out of the total is other
+                CriteriaQuery<Long> totalQuery = cb.createQuery(Long.class);
+                Root<E> totalRoot = totalQuery.from(this.entityClass);
+                totalQuery.select(cb.count(totalRoot));
+                List<Predicate> totalPredicates = this.setFilterValuesPredicates(cb, totalQuery, totalRoot,
+                        colDef.getField().getExpression(cb, totalRoot), request);
+                if (!totalPredicates.isEmpty()) {
+                    totalQuery.where(totalPredicates.toArray(new Predicate[0]));
+                }
+                otherCount = this.createQuery(totalQuery).getSingleResult() - listedCount;
+            }
+
+            return SetFilterValueCounts.builder()
+                    .values(values)
+                    .otherCount(otherCount)
+                    .build();
+        } finally {
+            this.closeCallScope(scope);
+        }
+    }
+
+    /**
+     * {@link #supplySetFilterValuesWithCounts(SetFilterValuesRequest)} on the given entity manager, see {@link #getRows(ServerSideGetRowsRequest, EntityManager)}.
+     *
+     * @param request       the column, search text, page or top and other filters
+     * @param entityManager entity manager to run the queries on
+     * @return              the values with their counts
+     */
+    @NonNull
+    public SetFilterValueCounts supplySetFilterValuesWithCounts(@NonNull SetFilterValuesRequest request, @NonNull EntityManager entityManager) {
+        return this.callInScope(CallScope.on(entityManager), () -> this.supplySetFilterValuesWithCounts(request));
+    }
+
+    /**
+     * Checks the column and the page of a set filter values request.
+     *
+     * @param request the set filter values request
+     * @return        the column definition of the requested column
+     */
+    @NonNull
+    protected ColDef<E, ?> validateSetFilterValuesRequest(@NonNull SetFilterValuesRequest request) {
+        ColDef<E, ?> colDef = this.colDefs.get(request.getField());
+        if (colDef == null) {
+            throw new IllegalArgumentException(String.format("Column definition for field '%s' not found.", request.getField()));
+        }
+        if (colDef.getFilter() == null) {
+            throw new IllegalStateException(String.format("Filter not enabled for field '%s'.", request.getField()));
+        }
+        if (request.getOffset() < 0) {
+            throw new InvalidRequestException("offset", "Offset must not be negative.");
+        }
+        if (request.getLimit() != null && request.getLimit() < 0) {
+            throw new InvalidRequestException("limit", "Limit must not be negative.");
+        }
+        if (request.getSearchText() != null && !request.getSearchText().isEmpty() && !String.class.equals(colDef.getField().getJavaType())) {
+            throw new InvalidRequestException("searchText", String.format("Field '%s' is not a text column and cannot be searched.", request.getField()));
+        }
+        return colDef;
+    }
+
+    /**
+     * Leaves the filter of the requested column out of the rows request, and the rows request out altogether
+     * when nothing else filters the rows.
+     *
+     * @param request the set filter values request
+     * @return        the request with only the other filters
+     */
+    @NonNull
+    protected SetFilterValuesRequest withOtherFiltersOnly(@NonNull SetFilterValuesRequest request) {
+        if (request.getRowsRequest() == null) {
+            return request;
+        }
+        ServerSideGetRowsRequest otherFilters = this.withoutColumnFilter(request.getRowsRequest(), request.getField());
+        return request.toBuilder().rowsRequest(this.filtersRows(otherFilters) ? otherFilters : null).build();
+    }
+
+    /**
+     * Supplies the values of a set filter that can still match under the other filters of the grid,
+     * see {@link #supplySetFilterValues(SetFilterValuesRequest)}.
+     *
+     * @param fieldName   the column
+     * @param rowsRequest the last rows request of the grid
+     * @return            distinct values of the column in the rows passing the other filters
+     */
+    @NonNull
+    public List<Object> supplySetFilterValues(@NonNull String fieldName, @NonNull ServerSideGetRowsRequest rowsRequest) {
+        return this.supplySetFilterValues(SetFilterValuesRequest.builder().field(fieldName).rowsRequest(rowsRequest).build());
+    }
+
+    /**
+     * Supplies the values of the set filters of many columns in one call, e.g. for all set filters of a grid
+     * that is being loaded. With {@link Builder#parallelQueries parallel queries} configured, the columns are
+     * queried at the same time, each on an entity manager of its own; otherwise one after another on the
+     * entity manager of the call. Values in the set filter values cache are not queried again.
+     *
+     * @param fieldNames  the columns
+     * @param rowsRequest the last rows request of the grid to take the other filters from, {@code null} for none
+     * @return            distinct values of each column, in the order of the columns
+     */
+    @NonNull
+    public Map<String, List<Object>> supplySetFilterValues(@NonNull List<String> fieldNames, ServerSideGetRowsRequest rowsRequest) {
+        // every column is checked before any query runs
+        List<SetFilterValuesRequest> requests = fieldNames.stream()
+                .distinct()
+                .map(fieldName -> SetFilterValuesRequest.builder().field(fieldName).rowsRequest(rowsRequest).build())
+                .collect(Collectors.toList());
+        requests.forEach(this::validateSetFilterValuesRequest);
+
+        CallScope scope = this.openCallScope();
+        try {
+            Map<String, List<Object>> values = new LinkedHashMap<>();
+            if (this.parallelEntityManagerFactory == null || requests.size() < 2) {
+                requests.forEach(request -> values.put(request.getField(), this.supplySetFilterValues(request)));
+                return values;
+            }
+            Map<String, CompletableFuture<Pair<List<Object>, Long>>> futures = new LinkedHashMap<>();
+            for (SetFilterValuesRequest request : requests) {
+                futures.put(request.getField(), this.supplyInParallel(scope, () -> this.supplySetFilterValues(request)));
+            }
+            try {
+                futures.forEach((fieldName, future) -> values.put(fieldName, this.join(future).getKey()));
+            } finally {
+                // the columns after a failed one are still running
+                this.awaitQuietly(futures.values());
+            }
+            return values;
+        } finally {
+            this.closeCallScope(scope);
+        }
+    }
+
+    /**
+     * {@link #supplySetFilterValues(List, ServerSideGetRowsRequest)} without other filters.
+     *
+     * @param fieldNames the columns
+     * @return           distinct values of each column, in the order of the columns
+     */
+    @NonNull
+    public Map<String, List<Object>> supplySetFilterValues(@NonNull List<String> fieldNames) {
+        return this.supplySetFilterValues(fieldNames, null);
+    }
+
+    /**
+     * {@link #supplySetFilterValues(List, ServerSideGetRowsRequest)} on the given entity manager, see {@link #getRows(ServerSideGetRowsRequest, EntityManager)}.
+     * Parallel queries still run on entity managers of their own.
+     *
+     * @param fieldNames    the columns
+     * @param rowsRequest   the last rows request of the grid to take the other filters from, {@code null} for none
+     * @param entityManager entity manager to run the queries on
+     * @return              distinct values of each column, in the order of the columns
+     */
+    @NonNull
+    public Map<String, List<Object>> supplySetFilterValues(@NonNull List<String> fieldNames, ServerSideGetRowsRequest rowsRequest, @NonNull EntityManager entityManager) {
+        return this.callInScope(CallScope.on(entityManager), () -> this.supplySetFilterValues(fieldNames, rowsRequest));
+    }
+
+    /**
+     * Copy of the rows request without the filter of the given column in its column filter model, so that
+     * a set filter does not narrow down its own values. Advanced filter models are returned unchanged.
+     *
+     * @param request   the rows request
+     * @param fieldName the column
+     * @return          the request without the column filter
+     */
+    @NonNull
+    protected ServerSideGetRowsRequest withoutColumnFilter(@NonNull ServerSideGetRowsRequest request, @NonNull String fieldName) {
+        if (this.enableAdvancedFilter || request.getFilterModel() == null || !request.getFilterModel().containsKey(fieldName)) {
+            return request;
         }
-        if (this.includeRowCountInLoadSuccessParams) {
-            loadSuccessParams.setRowCount(this.countRows(request));
-        }
-        return loadSuccessParams;
+        Map<String, Object> filterModel = new HashMap<>(request.getFilterModel());
+        filterModel.remove(fieldName);
+        return request.toBuilder().filterModel(filterModel).build();
     }
 
     /**
-     * Counts the number of rows or groups that match the criteria specified in the request.
-     * <p>
-     * This method determines the total count of rows or groups based on the filtering and grouping
-     * specifications in the provided {@link ServerSideGetRowsRequest}. The behavior differs depending
-     * on whether the request contains row grouping:
-     * <ul>
-     *   <li>If no grouping is applied, it counts the total number of entity rows that match the filter criteria.</li>
-     *   <li>If grouping is applied, it counts the distinct values of the root group column that would be displayed
-     *       at the current grouping level, taking into account all filters and having conditions.</li>
-     * </ul>
-     * <p>
-     *     
-     * This count can be used for server-side pagination calculations or to determine the total
-     * number of rows/groups available when displaying partial results.
+     * @param request the rows request
+     * @return        whether the filters of the request can leave rows out, besides the always applied predicate
+     */
+    protected boolean filtersRows(@NonNull ServerSideGetRowsRequest request) {
+        return (request.getFilterModel() != null && !request.getFilterModel().isEmpty())
+                || this.isExternalFilterPresent
+                || (this.isQuickFilterPresent && request.getQuickFilter() != null && !request.getQuickFilter().isEmpty());
+    }
+
+    /**
+     * Selects the distinct values of the column, sorted in ascending order.
      *
-     * @param request The {@link ServerSideGetRowsRequest} containing filtering, grouping, and other criteria information.
-     * @return The count of rows or groups that match the criteria in the request.
-     * @throws OnPivotMaxColumnsExceededException If the number of pivot columns to be generated exceeds the configured limit.
-     * @see #getRows(ServerSideGetRowsRequest) For retrieving the actual row data.
+     * @param colDef  the column
+     * @param request search text, page and other filters of the values, {@code null} for all values
+     * @param <T>     the value type of the column
+     * @return        the values
      */
+    @NonNull
     @SuppressWarnings("unchecked")
-    public long countRows(@NonNull ServerSideGetRowsRequest request) throws OnPivotMaxColumnsExceededException {
-        this.validateRequest(request);
-
-        CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
-        CriteriaQuery<Long> query = cb.createQuery(Long.class);
-        Root<E> root = query.from(this.entityClass);
-        // record all the context we put into query
-        QueryContext<E> queryContext = new QueryContext<>(cb, query, root);
-        
-        // we count groups when there is grouping
-        boolean hasGroupCols = !request.getRowGroupCols().isEmpty();
-        boolean countingGroups = hasGroupCols;
-        if (hasGroupCols && this.paginateChildRows) {
-            // if paginateChildRows is turned on and all groups are expanded, we count records inside group (not counting groups)
-            boolean allGroupsExpanded = request.getRowGroupCols().size() == request.getGroupKeys().size();
-            if (allGroupsExpanded) {
-                countingGroups = false;
-            }
-        }
-        
-        if (countingGroups) {
-            // select the group col that we are counting
-            int countingGroupColIndex = this.paginateChildRows
-                    // when paginating child rows, we count the first unexpanded group (next after last group key)
-                    ? request.getGroupKeys().size()
-                    // otherwise, we count root group
-                    : 0;
-            String countingGroupCol = request.getRowGroupCols().get(countingGroupColIndex).getId();
-            ColDef<E, ?> countingGroupColDef = this.colDefs.get(countingGroupCol);
-
-            // subquery will only select the group column 
-            Subquery<?> subquery = query.subquery(countingGroupColDef.getField().getExpression(cb, root).getJavaType());
-            Root<E> subqueryRoot = subquery.from(this.entityClass);
-            QueryContext<E> subqueryContext = new QueryContext<>(cb, subquery, subqueryRoot);
-            
-            this.select(subqueryContext, request);
-            this.where(subqueryContext, request);
-            this.groupBy(subqueryContext, request);
-            this.having(subqueryContext, request);
+    protected <T> List<T> loadSetFilterValues(@NonNull ColDef<E, T> colDef, SetFilterValuesRequest request) {
+        CallScope scope = this.openCallScope();
+        try {
+            ColumnSource<E, T> field = colDef.getField();
+            CriteriaBuilder cb = this.criteriaBuilder();
+            CriteriaQuery<T> query = cb.createQuery(field.getJavaType());
+            Root<E> root = query.from(this.entityClass);
+            Expression<T> path = colDef.getField().getExpression(cb, root);
             
-            // select the group column in subquery
-            subquery.select((Expression) countingGroupColDef.getField().getExpression(cb, subqueryRoot));
-            // where
-            if (!subqueryContext.getWherePredicates().isEmpty()) {
-                Predicate[] predicates = subqueryContext.getWherePredicates().stream().map(WherePredicateMetadata::getPredicate).toArray(Predicate[]::new);
-                subquery.where(predicates);
-            }
-            // group by
-            if (!subqueryContext.getGrouping().isEmpty()) {
-                subquery.groupBy(subqueryContext.getGrouping().stream().map(GroupingMetadata::getGropingExpression).collect(Collectors.toList()));
-            }
-            // having
-            if (!subqueryContext.getHaving().isEmpty()) {
-                Predicate[] having = subqueryContext.getHaving().stream().map(HavingMetadata::getPredicate).toArray(Predicate[]::new);
-                subquery.having(having);
+            // select
+            query.select(path).distinct(true);
+            List<Predicate> predicates = this.setFilterValuesPredicates(cb, query, root, path, request);
+            if (!predicates.isEmpty()) {
+                query.where(predicates.toArray(new Predicate[0]));
             }
+            // order by asc
+            query.orderBy(cb.asc(path));
             
-            // in parent query, count distinct values of column group that are returned in subquery
-            query.select(cb.countDistinct(countingGroupColDef.getField().getExpression(cb, root)));
-            query.where(cb.in(countingGroupColDef.getField().getExpression(cb, root)).value((Subquery) subquery));
-            
-            return this.entityManager.createQuery(query).getSingleResult();
-        } else {
-            // no groups, count rows
-            this.select(queryContext, request);
-            this.where(queryContext, request);
-            
-            query.select(cb.count(root));
-            if (!queryContext.getWherePredicates().isEmpty()) {
-                Predicate[] predicates = queryContext.getWherePredicates().stream().map(WherePredicateMetadata::getPredicate).toArray(Predicate[]::new);
-                query.where(predicates);
+            TypedQuery<T> typedQuery = this.createQuery(query);
+            if (request != null) {
+                // only the page shown in the filter list
+                typedQuery.setFirstResult(request.getOffset());
+                if (request.getLimit() != null) {
+                    typedQuery.setMaxResults(request.getLimit());
+                }
             }
-            
-            return this.entityManager.createQuery(query).getSingleResult();
+            return typedQuery.getResultList();
+        } finally {
+            this.closeCallScope(scope);
         }
     }
     
     /**
-     * Computes aggregated values across all rows matching the request filters,
-     * intended to populate the grid's grand total row.
+     * Predicates of the rows whose values a set filter supplies: the always applied predicate,
+     * the other filters of the rows request and the search text.
      *
-     * @param request the AG Grid server-side request containing value columns and filters.
-     * @return a map of aggregated values keyed by field name.
-     * @throws IllegalStateException if the grand total row is not enabled on this {@code QueryBuilder}.
+     * @param cb      the criteria builder
+     * @param query   the query the predicates are for
+     * @param root    root of the query
+     * @param path    the column
+     * @param request search text and other filters, {@code null} for all rows
+     * @return        the predicates
      */
     @NonNull
-    public Map<String, Object> getGrandTotalData(@NonNull ServerSideGetRowsRequest request) {
-        if (!this.grandTotalRow) {
-            throw new IllegalStateException("Grand total row is disabled, enable it to get grand total data");
+    @SuppressWarnings("unchecked")
+    protected List<Predicate> setFilterValuesPredicates(@NonNull CriteriaBuilder cb, @NonNull AbstractQuery<?> query, @NonNull Root<E> root, @NonNull Expression<?> path, SetFilterValuesRequest request) {
+        List<Predicate> predicates = new ArrayList<>(4);
+        if (this.alwaysAppliedPredicate != null) {
+            predicates.add(this.alwaysAppliedPredicate.apply(cb, root));
         }
-        
-        this.validateRequest(request);
-        if (request.getValueCols().isEmpty()) {
-            return Collections.emptyMap();
+        if (request != null && request.getRowsRequest() != null) {
+            QueryContext<E> queryContext = new QueryContext<>(cb, query, root);
+            this.whereBasic(queryContext, request.getRowsRequest()).forEach(where -> predicates.add(where.getPredicate()));
+        }
+        if (request != null && request.getSearchText() != null && !request.getSearchText().isEmpty()) {
+            // only text columns are searched, see validateSetFilterValuesRequest
+            Expression<String> text = (Expression<String>) path;
+            Expression<String> searchText = ParameterBindingCriteriaBuilder.value(cb, request.getSearchText());
+            if (!request.isCaseSensitive()) {
+                text = cb.lower(text);
+                searchText = cb.lower(searchText);
+            }
+            Expression<String> pattern = request.isStartsWith()
+                    ? cb.concat(searchText, "%")
+                    : cb.concat(cb.concat("%", searchText), "%");
+            predicates.add(cb.like(text, pattern));
         }
-        
-        CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
-        CriteriaQuery<Tuple> query = cb.createTupleQuery();
-        Root<E> root = query.from(this.entityClass);
-        // record all the context we put into query
-        QueryContext<E> queryContext = new QueryContext<>(cb, query, root);
+        return predicates;
+    }
 
-        // select value cols
-        for (ColumnVO columnVO : request.getValueCols()) {
-            Expression<?> path = this.colDefs.get(columnVO.getField()).getField().getExpression(cb, root);
-            var aggregateFunction = this.aggFuncs.get(columnVO.getAggFunc());
-            Expression<?> aggregatedField = aggregateFunction.apply(cb, path);
-            queryContext.getSelections().add(
-                    SelectionMetadata
-                            .builder()
-                            .alias(columnVO.getField())
-                            .expression(aggregatedField)
-                            .isAggregationSelection(true)
-                            .build()
-            );
-        }
-        // filter
-        this.where(queryContext, request);
-        // remove the ones that filter group keys
-        if (!request.getGroupKeys().isEmpty()) {
-            queryContext.setWherePredicates(
-                    queryContext.getWherePredicates()
-                            .stream()
-                            .filter(p -> !p.isGroupPredicate())
-                            .collect(Collectors.toList())
-            );
-        }
-        
-        
-        // apply
-        query.select(cb.tuple(queryContext.getSelections().stream().map(s -> s.getExpression().alias(s.getAlias())).toArray(Selection<?>[]::new)));
-        if (!queryContext.getWherePredicates().isEmpty()) {
-            Predicate[] predicates = queryContext.getWherePredicates().stream().map(WherePredicateMetadata::getPredicate).toArray(Predicate[]::new);
-            query.where(predicates);
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public List<Object> supplySetFilterValues(@NonNull String fieldName) {
+        ColDef<E, ?> colDef = this.colDefs.get(fieldName);
+        if (colDef == null) {
+            throw new IllegalArgumentException(String.format("Column definition for field '%s' not found.", fieldName));
         }
-        Tuple data = this.entityManager.createQuery(query).getSingleResult();
-        
-        return this.tupleToMap(List.of(data)).get(0);
+        return (List<Object>) supplySetFilterValues(colDef.getField());
     }
 
     /**
-     * Retrieves the detail row data for a specific master row in Master-Detail mode.
-     * <p>
-     * This method executes a query to fetch child records associated with the provided
-     * {@code masterRow}, applying any dynamic class resolution or column definitions if configured.
+     * Asynchronous {@link #getRows(ServerSideGetRowsRequest)}: runs on the executor, on an entity manager
+     * from {@code entityManagerSupplier}, without blocking the calling thread.
      *
-     * @param masterRow the data of the parent row for which details are being requested
-     * @return a list of maps representing the detail rows
+     * @param request  the server-side request
+     * @param executor executor to run the query on, e.g. one starting a virtual thread per task
+     * @return         future of the loaded rows, completed exceptionally with whatever {@code getRows} throws
+     * @throws IllegalStateException if no {@code entityManagerSupplier} is configured
      */
     @NonNull
-    public List<Map<String, Object>> getDetailRowData(@NonNull Map<String, Object> masterRow) {
-        if (!this.masterDetail) {
-            throw new IllegalStateException("Please set masterDetail property to true to use detail row data");
-        }
-        
-        // find params for detail grid
-        MasterDetailParams<E, E_ID, D> params = this.dynamicMasterDetailParams != null
-                ? this.dynamicMasterDetailParams.apply(masterRow)   // dynamic
-                : this.masterDetailParams;                          // static
-        
-        CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
-        CriteriaQuery<Tuple> query = cb.createTupleQuery();
-        Root<D> root = query.from(params.getDetailClass());
-        
-        // select
-        query.select(cb.tuple(
-                params.getDetailColDefs().values().stream()
-                .map(colDef -> params.getDetailColDefs().get(colDef.getFieldName()).getField().getExpression(cb, root).alias(colDef.getFieldName()))
-                .toArray(Selection<?>[]::new)
-        ));
+    public CompletableFuture<LoadSuccessParams> getRowsAsync(@NonNull ServerSideGetRowsRequest request, @NonNull Executor executor) {
+        return this.supplyAsync(() -> this.getRows(request), executor);
+    }
 
-        // master predicate
-        List<Predicate> predicates = new ArrayList<>(2);
-        predicates.add(this.createMasterRowPredicate(cb, root, masterRow, params));
-        if (params.getAlwaysAppliedDetailPredicate() != null) {
-            predicates.add(params.getAlwaysAppliedDetailPredicate().apply(cb, root));
-        }
-        query.where(predicates.toArray(Predicate[]::new));
+    /**
+     * Asynchronous {@link #countRows(ServerSideGetRowsRequest)}, see {@link #getRowsAsync}.
+     *
+     * @param request  the server-side request
+     * @param executor executor to run the query on
+     * @return         future of the row or group count
+     * @throws IllegalStateException if no {@code entityManagerSupplier} is configured
+     */
+    @NonNull
+    public CompletableFuture<Long> countRowsAsync(@NonNull ServerSideGetRowsRequest request, @NonNull Executor executor) {
+        return this.supplyAsync(() -> this.countRows(request), executor);
+    }
 
-        // result
-        TypedQuery<Tuple> typedQuery = this.entityManager.createQuery(query);
-        List<Tuple> data = typedQuery.getResultList();
-        return this.tupleToMap(data);
+    /**
+     * Asynchronous {@link #getGrandTotalData(ServerSideGetRowsRequest)}, see {@link #getRowsAsync}.
+     *
+     * @param request  the server-side request
+     * @param executor executor to run the query on
+     * @return         future of the aggregated values keyed by field name
+     * @throws IllegalStateException if no {@code entityManagerSupplier} is configured
+     */
+    @NonNull
+    public CompletableFuture<Map<String, Object>> getGrandTotalDataAsync(@NonNull ServerSideGetRowsRequest request, @NonNull Executor executor) {
+        return this.supplyAsync(() -> this.getGrandTotalData(request), executor);
     }
 
     /**
-     * Supplies a list of unique values for an AG Grid Set Filter for the specified field.
-     * Fetches distinct values from the database and returns them sorted in ascending order.
+     * {@link #getRows(ServerSideGetRowsRequest)} on the given entity manager instead of the query builder's.
+     * The entity manager stays open, it belongs to the caller.
      *
-     * @param <T> the value type of the column.
-     * @param field the column field path to retrieve unique values for.
-     * @return a sorted list of distinct values present in the database.
+     * @param request       the server-side request
+     * @param entityManager entity manager to run the queries on
+     * @return              the loaded rows
      */
     @NonNull
-    @SuppressWarnings("unchecked")
-    public <T> List<T> supplySetFilterValues(@NonNull ColumnSource<E, T> field) {
-        ColDef<E, T> colDef = (ColDef<E, T>) this.colDefs.get(field.getName());
-        if (colDef == null) {
-            throw new IllegalArgumentException(String.format("Column definition for field '%s' not found.", field));
-        }
-        if (colDef.getFilter() == null) {
-            throw new IllegalStateException(String.format("Filter not enabled for field '%s'.", field));
+    public LoadSuccessParams getRows(@NonNull ServerSideGetRowsRequest request, @NonNull EntityManager entityManager) {
+        return this.callInScope(CallScope.on(entityManager), () -> this.getRows(request));
+    }
+
+    /**
+     * {@link #getRows(ServerSideGetRowsRequest, Class)} on the given entity manager, see {@link #getRows(ServerSideGetRowsRequest, EntityManager)}.
+     *
+     * @param request       the server-side request
+     * @param rowType       class of the rows
+     * @param entityManager entity manager to run the query on
+     * @param <R>           the row class
+     * @return              the rows and the rest of the load success params
+     */
+    @NonNull
+    public <R> TypedLoadSuccessParams<R> getRows(@NonNull ServerSideGetRowsRequest request, @NonNull Class<R> rowType, @NonNull EntityManager entityManager) {
+        return this.callInScope(CallScope.on(entityManager), () -> this.getRows(request, rowType));
+    }
+
+    /**
+     * {@link #countRows(ServerSideGetRowsRequest)} on the given entity manager, see {@link #getRows(ServerSideGetRowsRequest, EntityManager)}.
+     *
+     * @param request       the server-side request
+     * @param entityManager entity manager to run the query on
+     * @return              the count of rows or groups
+     */
+    public long countRows(@NonNull ServerSideGetRowsRequest request, @NonNull EntityManager entityManager) {
+        return this.callInScope(CallScope.on(entityManager), () -> this.countRows(request));
+    }
+
+    /**
+     * {@link #getGrandTotalData(ServerSideGetRowsRequest)} on the given entity manager, see {@link #getRows(ServerSideGetRowsRequest, EntityManager)}.
+     *
+     * @param request       the server-side request
+     * @param entityManager entity manager to run the query on
+     * @return              aggregated values keyed by field name
+     */
+    @NonNull
+    public Map<String, Object> getGrandTotalData(@NonNull ServerSideGetRowsRequest request, @NonNull EntityManager entityManager) {
+        return this.callInScope(CallScope.on(entityManager), () -> this.getGrandTotalData(request));
+    }
+
+    /**
+     * {@link #getDetailRowData(Map)} on the given entity manager, see {@link #getRows(ServerSideGetRowsRequest, EntityManager)}.
+     *
+     * @param masterRow     the master row
+     * @param entityManager entity manager to run the query on
+     * @return              the detail rows
+     */
+    @NonNull
+    public List<Map<String, Object>> getDetailRowData(@NonNull Map<String, Object> masterRow, @NonNull EntityManager entityManager) {
+        return this.callInScope(CallScope.on(entityManager), () -> this.getDetailRowData(masterRow));
+    }
+
+    /**
+     * {@link #supplySetFilterValues(String)} on the given entity manager, see {@link #getRows(ServerSideGetRowsRequest, EntityManager)}.
+     *
+     * @param fieldName     the column
+     * @param entityManager entity manager to run the query on
+     * @return              distinct values of the column
+     */
+    @NonNull
+    public List<Object> supplySetFilterValues(@NonNull String fieldName, @NonNull EntityManager entityManager) {
+        return this.callInScope(CallScope.on(entityManager), () -> this.supplySetFilterValues(fieldName));
+    }
+
+    /**
+     * {@link #supplySetFilterValues(SetFilterValuesRequest)} on the given entity manager, see {@link #getRows(ServerSideGetRowsRequest, EntityManager)}.
+     *
+     * @param request       the column, search text and page
+     * @param entityManager entity manager to run the query on
+     * @return              the matching values
+     */
+    @NonNull
+    public List<Object> supplySetFilterValues(@NonNull SetFilterValuesRequest request, @NonNull EntityManager entityManager) {
+        return this.callInScope(CallScope.on(entityManager), () -> this.supplySetFilterValues(request));
+    }
+
+    /**
+     * Streams all rows matching the request, e.g. for exports. The rows are selected, filtered and sorted like
+     * in {@link #getRows(ServerSideGetRowsRequest)}, but the row window of the request is ignored and the rows
+     * are read from the database cursor as the stream is consumed, so memory stays flat however many rows
+     * there are. Detail rows are not attached in master-detail mode.
+     * <p>
+     * The stream holds an open database cursor and must be closed:
+     * <pre>
+     *   try (Stream&lt;Map&lt;String, Object&gt;&gt; rows = queryBuilder.streamRows(request)) {
+     *       rows.forEach(writer::write);
+     *   }
+     * </pre>
+     * An entity manager taken from {@code entityManagerSupplier} for the call is closed together with the stream.
+     *
+     * @param request the server-side request
+     * @return        stream of the rows, to be closed after use
+     */
+    @NonNull
+    public Stream<Map<String, Object>> streamRows(@NonNull ServerSideGetRowsRequest request) {
+        Pair<QueryContext<E>, Stream<Tuple>> streamed = this.streamTuples(request);
+        RowLayout layout = this.rowLayout(streamed.getKey().getSelections().stream().map(SelectionMetadata::getAlias).toArray(String[]::new));
+        return streamed.getValue().map(layout::toMap);
+    }
+
+    /**
+     * {@link #streamRows(ServerSideGetRowsRequest)} on the given entity manager, which has to stay open
+     * until the stream is closed.
+     *
+     * @param request       the server-side request
+     * @param entityManager entity manager to run the query on
+     * @return              stream of the rows, to be closed after use
+     */
+    @NonNull
+    public Stream<Map<String, Object>> streamRows(@NonNull ServerSideGetRowsRequest request, @NonNull EntityManager entityManager) {
+        return this.callInScope(CallScope.on(entityManager), () -> this.streamRows(request));
+    }
+
+    /**
+     * Writes all rows matching the request through the export writer, straight from the database cursor,
+     * without building a row map per row. Rows are selected like in {@link #streamRows(ServerSideGetRowsRequest)},
+     * the columns come in the order of their selection, which for plain rows is the order of the column definitions.
+     * Column headers and value formatting come from {@link ColDef#getHeaderName()} and {@link ColDef#getValueFormatter()}.
+     *
+     * @param request the server-side request
+     * @param writer  writer of the export format
+     * @throws IOException if writing fails
+     */
+    public void exportRows(@NonNull ServerSideGetRowsRequest request, @NonNull ExportWriter writer) throws IOException {
+        Pair<QueryContext<E>, Stream<Tuple>> streamed = this.streamTuples(request);
+        try (Stream<Tuple> tuples = streamed.getValue()) {
+            writer.begin(this.exportColumns(streamed.getKey()));
+            Iterator<Tuple> iterator = tuples.iterator();
+            while (iterator.hasNext()) {
+                writer.row(iterator.next());
+            }
+            writer.end();
         }
+    }
 
-        CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
-        CriteriaQuery<T> query = cb.createQuery(field.getJavaType());
-        Root<E> root = query.from(this.entityClass);
-        Expression<T> path = colDef.getField().getExpression(cb, root);
-        
-        // select
-        query.select(path).distinct(true);
-        if (this.alwaysAppliedPredicate != null) {
-            query.where(this.alwaysAppliedPredicate.apply(cb, root));
+    /**
+     * Writes all rows matching the request to the stream as CSV, see {@link #exportRows}.
+     *
+     * @param request      the server-side request
+     * @param outputStream stream to write to, it is not closed
+     * @throws IOException if writing fails
+     */
+    public void exportCsv(@NonNull ServerSideGetRowsRequest request, @NonNull OutputStream outputStream) throws IOException {
+        this.exportRows(request, new CsvExportWriter(outputStream));
+    }
+
+    /**
+     * Writes all rows matching the request to the stream as newline delimited JSON, see {@link #exportRows}.
+     *
+     * @param request      the server-side request
+     * @param outputStream stream to write to, it is not closed
+     * @throws IOException if writing fails
+     */
+    public void exportNdjson(@NonNull ServerSideGetRowsRequest request, @NonNull OutputStream outputStream) throws IOException {
+        this.exportRows(request, new NdjsonExportWriter(outputStream));
+    }
+
+    /**
+     * Creates the export columns of the selections of the query, in their order.
+     *
+     * @param queryContext context the query was built with
+     * @return             the export columns
+     */
+    @NonNull
+    protected List<ExportColumn> exportColumns(@NonNull QueryContext<E> queryContext) {
+        List<SelectionMetadata> selections = queryContext.getSelections();
+        Map<String, Expression<?>> pivotingColumns = queryContext.getPivotingContext().getColumnNamesToExpression();
+        List<ExportColumn> columns = new ArrayList<>(selections.size());
+        for (int i = 0; i < selections.size(); i++) {
+            String field = selections.get(i).getAlias();
+            ColDef<E, ?> colDef = this.colDefs.get(field);
+            if (colDef == null && pivotingColumns != null && pivotingColumns.containsKey(field)) {
+                // pivot result columns are formatted like the column they aggregate
+                colDef = this.colDefs.get(this.originalColNameFromPivoted(field));
+            }
+            String header = colDef != null && colDef.getHeaderName() != null && colDef.getFieldName().equals(field)
+                    ? colDef.getHeaderName()
+                    : field;
+            columns.add(new ExportColumn(field, header, i, colDef != null ? colDef.getValueFormatter() : null));
         }
-        // order by asc
-        query.orderBy(cb.asc(path));
-        
-        return this.entityManager.createQuery(query).getResultList();
+        return columns;
     }
-    
+
+    /**
+     * Builds the rows query of the request without its row window and opens a stream of its results.
+     *
+     * @param request the server-side request
+     * @return        context the query was built with, paired with the stream of its results
+     */
     @NonNull
-    @SuppressWarnings("unchecked")
-    public List<Object> supplySetFilterValues(@NonNull String fieldName) {
-        ColDef<E, ?> colDef = this.colDefs.get(fieldName);
-        if (colDef == null) {
-            throw new IllegalArgumentException(String.format("Column definition for field '%s' not found.", fieldName));
+    protected Pair<QueryContext<E>, Stream<Tuple>> streamTuples(@NonNull ServerSideGetRowsRequest request) {
+        CallScope scope = this.openCallScope();
+        try {
+            this.validateRequest(request);
+
+            CriteriaBuilder cb = this.criteriaBuilder();
+            CriteriaQuery<Tuple> query = cb.createTupleQuery();
+            Root<E> root = query.from(this.entityClass);
+            QueryContext<E> queryContext = new QueryContext<>(cb, query, root);
+            this.select(queryContext, request);
+            this.where(queryContext, request);
+            this.groupBy(queryContext, request);
+            this.having(queryContext, request);
+            this.orderBy(queryContext, request);
+            this.assemble(query, queryContext);
+
+            TypedQuery<Tuple> typedQuery = this.createQuery(query);
+            if (this.streamFetchSize != null) {
+                FETCH_SIZE_HINTS.forEach(hint -> typedQuery.setHint(hint, this.streamFetchSize));
+            }
+            Stream<Tuple> tuples = typedQuery.getResultStream();
+            if (scope.ownsEntityManager && scope.depth == 1) {
+                // the rows are read after the call returns, so the entity manager has to live as long as the stream
+                EntityManager entityManager = scope.entityManager;
+                scope.ownsEntityManager = false;
+                tuples = tuples.onClose(entityManager::close);
+            }
+            return Pair.of(queryContext, tuples);
+        } finally {
+            this.closeCallScope(scope);
         }
-        return (List<Object>) supplySetFilterValues(colDef.getField());
     }
 
     /**
@@ -486,23 +1758,30 @@ public class QueryBuilder<E, E_ID, D> {
     protected void select(@NonNull QueryContext<E> queryContext, @NonNull ServerSideGetRowsRequest request) {
         // select
         List<SelectionMetadata> selections;
+        GridMode gridMode;
         if (this.treeData) {
             // tree data
+            gridMode = GridMode.TREE_DATA;
             selections = this.selectTreeData(queryContext, request);
         } else if (this.masterDetail) {
             // master-detail
+            gridMode = GridMode.MASTER_DETAIL;
             selections = this.selectMasterDetail(queryContext, request);
         } else if (request.isPivotMode() && !request.getPivotCols().isEmpty()) {
             // pivoting
+            gridMode = GridMode.PIVOTING;
             selections = this.selectPivoting(queryContext, request);
         } else if (!request.getRowGroupCols().isEmpty()) {
             // grouping
+            gridMode = GridMode.GROUPING;
             selections = this.selectGrouping(queryContext, request);
         } else {
             // basic grid
+            gridMode = GridMode.BASIC;
             selections = this.selectBasic(queryContext, request);
         }
 
+        queryContext.setGridMode(gridMode);
         queryContext.setSelections(selections);
     }
 
@@ -651,7 +1930,7 @@ public class QueryBuilder<E, E_ID, D> {
         }
         
         Objects.requireNonNull(this.masterDetailParams);
-        CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+        CriteriaBuilder cb = this.criteriaBuilder();
         CriteriaQuery<Tuple> query = cb.createTupleQuery();
         Root<D> detailRoot = query.from(this.masterDetailParams.getDetailClass());
         
@@ -682,13 +1961,13 @@ public class QueryBuilder<E, E_ID, D> {
         
         query.select(cb.tuple(detailSelections.toArray(new Selection<?>[0])));
         List<Predicate> predicates = new ArrayList<>(2);
-        predicates.add(masterPrimaryFieldPath.in(masterIds));
+        predicates.add(ParameterBindingCriteriaBuilder.in(cb, masterPrimaryFieldPath, masterIds));
         if (this.masterDetailParams.getAlwaysAppliedDetailPredicate() != null) {
             predicates.add(this.masterDetailParams.getAlwaysAppliedDetailPredicate().apply(cb, detailRoot));
         }
         query.where(predicates.toArray(Predicate[]::new));
 
-        List<Tuple> detailTuples = this.entityManager.createQuery(query).getResultList();
+        List<Tuple> detailTuples = this.createQuery(query).getResultList();
         Map<E_ID, List<Map<String, Object>>> detailsGroupedByMaster = this.tupleToMap(detailTuples).stream()
                 .collect(Collectors.groupingBy(v -> (E_ID) v.get(masterPrimaryFieldAlias)));
         
@@ -770,7 +2049,7 @@ public class QueryBuilder<E, E_ID, D> {
         // predicates for each row
         List<Predicate> wordsPredicates = new ArrayList<>(words.size());
         for (String word : words) {
-            Expression<String> wordExpression = cb.literal(word);
+            Expression<String> wordExpression = ParameterBindingCriteriaBuilder.value(cb, word);
             
             // transform word expression according to quick filter config
             if (this.quickFilterTrimInput) {
@@ -821,6 +2100,45 @@ public class QueryBuilder<E, E_ID, D> {
      */
     @NonNull
     protected List<Tuple> apply(@NonNull CriteriaQuery<Tuple> query, @NonNull QueryContext<E> queryContext) {
+        this.assemble(query, queryContext);
+
+        TypedQuery<Tuple> typedQuery = this.createQuery(query);
+        this.bindKeyset(typedQuery, queryContext);
+        typedQuery.setFirstResult(queryContext.getFirstResult());
+        typedQuery.setMaxResults(queryContext.getMaxResults());
+        
+        return typedQuery.getResultList();
+    }
+
+    /**
+     * Binds the cursor values of the window to the parameters of the seek predicate.
+     *
+     * @param typedQuery   the rows query
+     * @param queryContext context holding the keyset parameters and values
+     */
+    @SuppressWarnings("unchecked")
+    protected void bindKeyset(@NonNull TypedQuery<?> typedQuery, @NonNull QueryContext<?> queryContext) {
+        List<ParameterExpression<?>> parameters = queryContext.getKeysetParameters();
+        List<Object> values = queryContext.getKeysetValues();
+        if (values == null) {
+            return;
+        }
+        for (int i = 0; i < parameters.size(); i++) {
+            ParameterExpression<Object> parameter = (ParameterExpression<Object>) parameters.get(i);
+            if (parameter != null) {
+                typedQuery.setParameter(parameter, Utils.convertJsonValue(values.get(i), parameter.getParameterType()));
+            }
+        }
+    }
+
+    /**
+     * Sets the select, where, group by, having, and order by clauses of the given {@link CriteriaQuery}
+     * based on the provided {@link QueryContext}.
+     *
+     * @param query        the criteria query to configure
+     * @param queryContext the context containing metadata for selections, filters, grouping, etc.
+     */
+    protected void assemble(@NonNull CriteriaQuery<Tuple> query, @NonNull QueryContext<E> queryContext) {
         CriteriaBuilder cb = queryContext.getCriteriaBuilder();
         // select
         query.select(cb.tuple(queryContext.getSelections().stream().map(s -> s.getExpression().alias(s.getAlias())).toArray(Selection<?>[]::new)));
@@ -842,12 +2160,6 @@ public class QueryBuilder<E, E_ID, D> {
         if (!queryContext.getOrders().isEmpty()) {
             query.orderBy(queryContext.getOrders().stream().map(OrderMetadata::getOrder).collect(Collectors.toList()));
         }
-
-        TypedQuery<Tuple> typedQuery = this.entityManager.createQuery(query);
-        typedQuery.setFirstResult(queryContext.getFirstResult());
-        typedQuery.setMaxResults(queryContext.getMaxResults());
-        
-        return typedQuery.getResultList();
     }
 
 
@@ -866,7 +2178,7 @@ public class QueryBuilder<E, E_ID, D> {
         List<SelectionMetadata> selections = new ArrayList<>();
         
         // add each non-aggregated field to selections as basic selection
-        this.colDefs.values().stream()
+        this.selectedColDefs(request).stream()
                 .filter(cd -> request.getValueCols().stream().noneMatch(vc -> vc.getField().equals(cd.getFieldName()))) // filter out the aggregated ones
                 .forEach(colDef -> {
                     Expression<?> field = colDef.getField().getExpression(cb, root);
@@ -1048,7 +2360,7 @@ public class QueryBuilder<E, E_ID, D> {
         } else {
             // groups are already expanded
             // just select columns
-            for (ColDef<E, ?> colDef : this.colDefs.values()) {
+            for (ColDef<E, ?> colDef : this.selectedColDefs(request)) {
                 Expression<?> field = colDef.getField().getExpression(cb, root);
                 selections.add(
                         SelectionMetadata.builder()
@@ -1074,7 +2386,7 @@ public class QueryBuilder<E, E_ID, D> {
         Root<E> root = queryContext.getRoot();
         CriteriaBuilder cb = queryContext.getCriteriaBuilder();
         // just select col defs
-        return this.colDefs.values()
+        return this.selectedColDefs(request)
                 .stream()
                 .map(colDef -> {
                     Expression<?> field = colDef.getField().getExpression(cb, root);
@@ -1083,6 +2395,33 @@ public class QueryBuilder<E, E_ID, D> {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Column definitions selected as plain columns of the rows: all of them, or only the
+     * {@link ServerSideGetRowsRequest#getRequestedColumns() requested columns} when the request names them.
+     * The primary field and the row group columns are always selected, the primary field links
+     * the detail rows to their master and identifies the rows.
+     * <p>
+     * Custom {@code createMasterRowPredicate} or dynamic master-detail params get only the selected columns
+     * of the master row, the columns they read have to be requested too.
+     *
+     * @param request the server-side request parameters from the grid
+     * @return        the column definitions to select, in their order
+     */
+    @NonNull
+    protected List<ColDef<E, ?>> selectedColDefs(@NonNull ServerSideGetRowsRequest request) {
+        if (request.getRequestedColumns() == null) {
+            return new ArrayList<>(this.colDefs.values());
+        }
+
+        Set<String> selected = new HashSet<>(request.getRequestedColumns());
+        selected.add(this.primaryField.getName());
+        request.getRowGroupCols().forEach(groupCol -> selected.add(groupCol.getField()));
+        return this.colDefs.values()
+                .stream()
+                .filter(colDef -> selected.contains(colDef.getFieldName()))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Creates the filtering criteria (WHERE clause) for the query when grid is in tree-data mode.
      *
@@ -1442,7 +2781,7 @@ public class QueryBuilder<E, E_ID, D> {
         }
         mainQuery.where(mainPredicates.toArray(Predicate[]::new));
         
-        return !this.entityManager.createQuery(mainQuery).setMaxResults(1).getResultList().isEmpty();
+        return !this.createQuery(mainQuery).setMaxResults(1).getResultList().isEmpty();
     }
 
     /**
@@ -2254,8 +3593,346 @@ public class QueryBuilder<E, E_ID, D> {
      * @param queryContext the query context to populate with pagination (offset and limit)
      */
     protected void limitOffset(@NonNull QueryContext<E> queryContext, @NonNull ServerSideGetRowsRequest request) {
-        queryContext.setFirstResult(request.getStartRow());
-        queryContext.setMaxResults(request.getEndRow() - request.getStartRow());
+        // the seek predicate already skipped the rows before the block
+        queryContext.setFirstResult(this.seeksAfterCursor(request) ? 0 : request.getStartRow());
+        queryContext.setKeysetValues(this.seeksAfterCursor(request) ? new ArrayList<>(request.getCursor()) : null);
+        int blockSize = request.getEndRow() - request.getStartRow();
+        // one row past the block tells whether the block is the last one
+        queryContext.setMaxResults(this.fetchesExtraRow() ? blockSize + 1 : blockSize);
+    }
+
+    /**
+     * @param alias alias of a selection
+     * @return      whether the selection is for the query builder itself (row count, keyset, row id), not a column of the rows
+     */
+    protected static boolean isInternalAlias(@NonNull String alias) {
+        return alias.equals(WINDOW_ROW_COUNT_ALIAS) || alias.startsWith(KEYSET_ALIAS_PREFIX) || alias.equals(ROW_ID_ALIAS);
+    }
+
+    /**
+     * @param request the server-side request
+     * @return        whether the rows of the request are fetched by {@link #fetchRowsByIds} after a rows query selecting only their ids
+     */
+    protected boolean fetchesIdsFirst(@NonNull ServerSideGetRowsRequest request) {
+        return this.fetchIdsFirst
+                && !this.treeData
+                && !this.masterDetail
+                && !(request.isPivotMode() && !request.getPivotCols().isEmpty())
+                && request.getRowGroupCols().isEmpty();
+    }
+
+    /**
+     * Selects only the primary field, the rows query of {@link #fetchesIdsFirst two-phase fetching}.
+     *
+     * @param queryContext the current query state container
+     */
+    protected void selectRowIds(@NonNull QueryContext<E> queryContext) {
+        List<SelectionMetadata> selections = new ArrayList<>();
+        selections.add(
+                SelectionMetadata.builder()
+                        .alias(ROW_ID_ALIAS)
+                        .expression(queryContext.getRoot().get(this.primaryField))
+                        .build()
+        );
+        queryContext.setGridMode(GridMode.BASIC);
+        queryContext.setSelections(selections);
+    }
+
+    /**
+     * Fetches the columns of the rows whose ids the rows query selected, the second query of
+     * {@link #fetchesIdsFirst two-phase fetching}. Rows deleted in between are left out.
+     *
+     * @param ids     tuples of the rows query, in the order of the rows
+     * @param request the server-side request
+     * @return        context of the query and the rows in the order of the ids
+     */
+    @NonNull
+    protected Pair<QueryContext<E>, List<Tuple>> fetchRowsByIds(@NonNull List<Tuple> ids, @NonNull ServerSideGetRowsRequest request) {
+        CriteriaBuilder cb = this.criteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<E> root = query.from(this.entityClass);
+        QueryContext<E> queryContext = new QueryContext<>(cb, query, root);
+        queryContext.setGridMode(GridMode.BASIC);
+        List<SelectionMetadata> selections = new ArrayList<>(this.selectBasic(queryContext, request));
+        selections.add(
+                SelectionMetadata.builder()
+                        .alias(ROW_ID_ALIAS)
+                        .expression(root.get(this.primaryField))
+                        .build()
+        );
+        queryContext.setSelections(selections);
+        if (ids.isEmpty()) {
+            return Pair.of(queryContext, new ArrayList<>(0));
+        }
+
+        List<Object> idValues = ids.stream().map(tuple -> tuple.get(ROW_ID_ALIAS)).collect(Collectors.toList());
+        queryContext.getWherePredicates().add(
+                WherePredicateMetadata.builder()
+                        .predicate(ParameterBindingCriteriaBuilder.in(cb, root.get(this.primaryField), idValues))
+                        .build()
+        );
+        // no window, the ids are the page
+        this.assemble(query, queryContext);
+        Map<Object, Tuple> rowsById = new HashMap<>(ids.size() * 2);
+        for (Tuple row : this.createQuery(query).getResultList()) {
+            rowsById.put(row.get(ROW_ID_ALIAS), row);
+        }
+
+        List<Tuple> rows = new ArrayList<>(ids.size());
+        for (Object id : idValues) {
+            Tuple row = rowsById.get(id);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return Pair.of(queryContext, rows);
+    }
+
+    /**
+     * @return whether the rows query fetches one row past the requested block, so that the row count
+     *         of the last block can be taken from the fetch instead of a count query
+     */
+    protected boolean fetchesExtraRow() {
+        return this.includeRowCountInLoadSuccessParams && this.rowCountFromLastBlock && !this.countsRowsInRowsQuery();
+    }
+
+    /**
+     * @return whether the rows query selects the row count through {@code rowCountWindowFunction},
+     *         so that no count query is needed for the blocks that return rows
+     */
+    protected boolean countsRowsInRowsQuery() {
+        return this.includeRowCountInLoadSuccessParams && this.rowCountWindowFunction != null;
+    }
+
+    /**
+     * Prepares keyset pagination of the rows query. Completes the order with the primary field, or with the
+     * group column of the level when the rows are groups, so that every row has a distinct position, selects
+     * the ordered values for the cursor of the block and, when the request carries the cursor of the previous
+     * block, restricts the query to the rows after it. Groups ordered by an aggregation are restricted in the
+     * {@code HAVING} clause, everything else in the {@code WHERE} clause.
+     * <p>
+     * Databases disagree on where {@code NULL} sorts, so every ordered value that can be null is preceded in the
+     * order by whether it is null: null sorts as the largest value, last ascending and first descending, on
+     * every database, and the seek predicate can tell which null values come after the cursor.
+     * <p>
+     * Must run after {@link #orderBy}, the keyset is the order of the query.
+     *
+     * @param queryContext the current query state container
+     * @param request      the server-side request parameters from the grid
+     * @throws InvalidRequestException if the cursor does not match the order of the request
+     */
+    protected void keyset(@NonNull QueryContext<E> queryContext, @NonNull ServerSideGetRowsRequest request) {
+        if (!this.pagesByKeyset(request)) {
+            return;
+        }
+        CriteriaBuilder cb = queryContext.getCriteriaBuilder();
+        Root<E> root = queryContext.getRoot();
+
+        boolean groupRows = request.getRowGroupCols().size() > request.getGroupKeys().size();
+        // groups of a level are unique by their group column, leaf rows by the primary field
+        String uniqueColId;
+        Expression<?> uniqueExpression;
+        if (groupRows) {
+            uniqueColId = request.getRowGroupCols().get(request.getGroupKeys().size()).getField();
+            uniqueExpression = queryContext.getSelections().stream()
+                    .filter(s -> s.isGroupingSelection() && uniqueColId.equals(s.getAlias()))
+                    .map(SelectionMetadata::getExpression)
+                    .findFirst()
+                    .orElseThrow();
+        } else {
+            uniqueColId = this.primaryField.getName();
+            uniqueExpression = root.get(this.primaryField);
+        }
+        List<OrderMetadata> orders = new ArrayList<>(queryContext.getOrders());
+        boolean orderedByUniqueColumn = orders.stream().anyMatch(order -> uniqueColId.equals(order.getColId()))
+                && request.getSortModel().stream().noneMatch(model -> uniqueColId.equals(model.getColId()) && "absolute".equals(model.getType()));
+        if (!orderedByUniqueColumn) {
+            orders.add(
+                    OrderMetadata.builder()
+                            .order(cb.asc(uniqueExpression))
+                            .colId(uniqueColId)
+                            .build()
+            );
+        }
+        // the keyset is the order without the null flags
+        List<Boolean> nullable = new ArrayList<>(orders.size());
+        List<OrderMetadata> queryOrders = new ArrayList<>(orders.size() * 2);
+        for (OrderMetadata order : orders) {
+            Expression<?> expression = order.getOrder().getExpression();
+            boolean orderNullable = this.isNullable(expression, root);
+            nullable.add(orderNullable);
+            if (orderNullable) {
+                Expression<Integer> nullFlag = cb.<Integer>selectCase().when(cb.isNull(expression), 1).otherwise(0);
+                queryOrders.add(
+                        OrderMetadata.builder()
+                                .order(order.getOrder().isAscending() ? cb.asc(nullFlag) : cb.desc(nullFlag))
+                                .colId(order.getColId())
+                                .build()
+                );
+            }
+            queryOrders.add(order);
+        }
+        queryContext.setOrders(queryOrders);
+
+        List<SelectionMetadata> selections = new ArrayList<>(queryContext.getSelections());
+        for (int i = 0; i < orders.size(); i++) {
+            selections.add(
+                    SelectionMetadata.builder()
+                            .alias(KEYSET_ALIAS_PREFIX + i)
+                            .expression(orders.get(i).getOrder().getExpression())
+                            .isKeysetSelection(true)
+                            .build()
+            );
+        }
+        queryContext.setSelections(selections);
+
+        if (!this.seeksAfterCursor(request)) {
+            return;
+        }
+        if (request.getCursor().size() != orders.size()) {
+            throw new InvalidRequestException("cursor",
+                    String.format("Cursor has %d values, the order of the request has %d.", request.getCursor().size(), orders.size()));
+        }
+        // bound per window, so that the query can be cached and reused for every block
+        List<ParameterExpression<?>> keysetParameters = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Object value = request.getCursor().get(i);
+            if (value == null) {
+                // compared by IS NULL, nothing to bind
+                keysetParameters.add(null);
+                continue;
+            }
+            Class<?> type = orders.get(i).getOrder().getExpression().getJavaType();
+            if (type == null) {
+                type = value.getClass();
+            }
+            keysetParameters.add(cb.parameter(Utils.boxed(type)));
+        }
+        queryContext.setKeysetParameters(keysetParameters);
+        Predicate seekPredicate = this.createSeekPredicate(cb, orders, nullable, keysetParameters);
+        boolean orderedByAggregation = groupRows && orders.stream()
+                .anyMatch(order -> request.getValueCols().stream().anyMatch(vc -> vc.getField().equals(order.getColId())));
+        if (orderedByAggregation) {
+            // aggregations only exist after grouping
+            List<HavingMetadata> having = new ArrayList<>(queryContext.getHaving());
+            having.add(
+                    HavingMetadata.builder()
+                            .predicate(seekPredicate)
+                            .isKeysetPredicate(true)
+                            .build()
+            );
+            queryContext.setHaving(having);
+        } else {
+            List<WherePredicateMetadata> wherePredicates = new ArrayList<>(queryContext.getWherePredicates());
+            wherePredicates.add(
+                    WherePredicateMetadata.builder()
+                            .predicate(seekPredicate)
+                            .isKeysetPredicate(true)
+                            .build()
+            );
+            queryContext.setWherePredicates(wherePredicates);
+        }
+    }
+
+    /**
+     * Creates the predicate matching the rows that come after the cursor in the given order, as the
+     * expanded row value comparison {@code (a > :a) OR (a = :a AND b > :b) OR ...},
+     * with {@code <} for the descending columns.
+     * <p>
+     * {@code NULL} is the largest value, as {@link #keyset} orders it: after a non-null value come the greater
+     * values and, ascending, the nulls; after a null come nothing ascending and every non-null value descending.
+     *
+     * @param cb       criteria builder
+     * @param orders   the order, the cursor holds one value per order
+     * @param nullable whether each ordered value can be null
+     * @param cursor   parameters of the ordered values of the last row of the previous block, null where the value is null
+     * @return         predicate for the rows after the cursor
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @NonNull
+    protected Predicate createSeekPredicate(@NonNull CriteriaBuilder cb, @NonNull List<OrderMetadata> orders, @NonNull List<Boolean> nullable, @NonNull List<ParameterExpression<?>> cursor) {
+        List<Predicate> alternatives = new ArrayList<>(orders.size());
+        List<Predicate> equalPrefix = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i).getOrder();
+            Expression<Comparable> expression = (Expression<Comparable>) order.getExpression();
+            Expression<Comparable> value = (Expression<Comparable>) cursor.get(i);
+
+            Predicate after;
+            if (value == null) {
+                // nothing is greater than null
+                after = order.isAscending() ? null : cb.isNotNull(expression);
+            } else if (order.isAscending()) {
+                after = nullable.get(i)
+                        ? cb.or(cb.greaterThan(expression, value), cb.isNull(expression))
+                        : cb.greaterThan(expression, value);
+            } else {
+                after = cb.lessThan(expression, value);
+            }
+            if (after != null) {
+                List<Predicate> alternative = new ArrayList<>(equalPrefix);
+                alternative.add(after);
+                alternatives.add(cb.and(alternative.toArray(Predicate[]::new)));
+            }
+            equalPrefix.add(value == null ? cb.isNull(expression) : cb.equal(expression, value));
+        }
+        // no alternative is false: the cursor is the last row
+        return cb.or(alternatives.toArray(Predicate[]::new));
+    }
+
+    /**
+     * @param expression an ordered expression
+     * @param root       root of the query
+     * @return           whether the expression can be null, false only for the primary field and
+     *                   mandatory attributes of the root entity itself, not reached through a join
+     */
+    protected boolean isNullable(@NonNull Expression<?> expression, @NonNull Root<E> root) {
+        if (!(expression instanceof Path) || ((Path<?>) expression).getParentPath() != root) {
+            return true;
+        }
+        Object model = ((Path<?>) expression).getModel();
+        if (!(model instanceof SingularAttribute)) {
+            return true;
+        }
+        SingularAttribute<?, ?> attribute = (SingularAttribute<?, ?>) model;
+        return !attribute.getName().equals(this.primaryField.getName()) && attribute.isOptional();
+    }
+
+    /**
+     * @param request the server-side request
+     * @return        whether the rows of the request are paged by keyset
+     */
+    protected boolean pagesByKeyset(@NonNull ServerSideGetRowsRequest request) {
+        return this.keysetPagination
+                && !this.treeData
+                && !this.masterDetail
+                && !(request.isPivotMode() && !request.getPivotCols().isEmpty());
+    }
+
+    /**
+     * @param request the server-side request
+     * @return        whether the block is read after the cursor of the request instead of at its offset
+     */
+    protected boolean seeksAfterCursor(@NonNull ServerSideGetRowsRequest request) {
+        return this.pagesByKeyset(request)
+                && request.getStartRow() > 0
+                && request.getCursor() != null
+                && !request.getCursor().isEmpty();
+    }
+
+    /**
+     * @param tuple the last row of the block
+     * @return      its keyset values, the cursor of the next block
+     */
+    @NonNull
+    protected List<Object> cursorOf(@NonNull Tuple tuple) {
+        List<Object> cursor = new ArrayList<>();
+        for (TupleElement<?> element : tuple.getElements()) {
+            if (element.getAlias() != null && element.getAlias().startsWith(KEYSET_ALIAS_PREFIX)) {
+                cursor.add(tuple.get(element));
+            }
+        }
+        return cursor;
     }
 
     /**
@@ -2270,62 +3947,95 @@ public class QueryBuilder<E, E_ID, D> {
             return new ArrayList<>(0);
         }
 
-        List<TupleElement<?>> elements = tuples.get(0).getElements();
-        int columnCount = elements.size();
-        
-        String[] aliases = new String[columnCount];
-        for (int i = 0; i < columnCount; i++) {
-            aliases[i] = elements.get(i).getAlias();
-        }
+        // the layout depends only on the aliases, compiled once for all the rows
+        RowLayout layout = this.rowLayout(tuples.get(0).getElements().stream().map(TupleElement::getAlias).toArray(String[]::new));
 
         List<Map<String, Object>> result = new ArrayList<>(tuples.size());
         for (Tuple tuple : tuples) {
-            // when master detail eager, 1 more element will be in columns (collection of detail records)
-            Map<String, Object> map = new HashMap<>(columnCount + ((this.masterDetail && !this.masterDetailLazy) ? 1 : 0));
-
-            for (int i = 0; i < columnCount; i++) {
-                String alias = aliases[i];
-                Object value = tuple.get(i);
-                if (alias == null) {
-                    continue;
-                }
+            result.add(layout.toMap(tuple));
+        }
+        
+        return result;
+    }
 
-                // if dot notation is not suppressed and field contains dot notation, create embedded map
-                if (!this.suppressFieldDotNotation && alias.contains(".")) {
-                    String[] parts = alias.split("\\.");
-                    
-                    Map<String, Object> currentLevel = map;
-                    for (int insertionLevel = 0; insertionLevel < parts.length - 1; insertionLevel++) {
-                        String part = parts[insertionLevel];
-                        
-                        Object existing = currentLevel.get(part);
-                        if (existing instanceof Map) {
-                            // exists already
-                            @SuppressWarnings("unchecked")
-                            Map<String, Object> nextLevel = (Map<String, Object>) existing;
-                            // move level down
-                            currentLevel = nextLevel;
-                        } else {
-                            // Create new nested map and link it
-                            Map<String, Object> newMap = new HashMap<>();
-                            currentLevel.put(part, newMap);
-                            // move level down
-                            currentLevel = newMap;
-                        }
-                    }
+    /**
+     * Converts a list of JPA {@link Tuple} objects to instances of the row class, matched by their aliases.
+     *
+     * @param tuples  the list of JPA tuples to convert
+     * @param rowType class of the rows
+     * @param <R>     the row class
+     * @return        the rows
+     */
+    @NonNull
+    protected <R> List<R> tupleToRows(@NonNull List<Tuple> tuples, @NonNull Class<R> rowType) {
+        if (tuples.isEmpty()) {
+            return new ArrayList<>(0);
+        }
 
-                    // put value to the level of insertion
-                    currentLevel.put(parts[parts.length - 1], value);
-                } else {
-                    // simple scenario
-                    map.put(alias, value);
-                }
+        // internal aliases are left out like in the row maps
+        String[] aliases = tuples.get(0).getElements().stream().map(TupleElement::getAlias).toArray(String[]::new);
+        for (int i = 0; i < aliases.length; i++) {
+            if (aliases[i] != null && isInternalAlias(aliases[i])) {
+                aliases[i] = null;
             }
-            result.add(map);
         }
-        
+        RowProjection<R> projection = RowProjection.compile(rowType, aliases);
+
+        List<R> result = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            result.add(projection.toRow(tuple));
+        }
         return result;
     }
+
+    /**
+     * Converts a list of JPA {@link Tuple} objects to columns: one array of values per selected alias.
+     *
+     * @param tuples       the list of JPA tuples to convert
+     * @param queryContext context the query was built with, its selections are the columns
+     * @return             the row data by column
+     */
+    @NonNull
+    protected ColumnarRowData tupleToColumns(@NonNull List<Tuple> tuples, @NonNull QueryContext<E> queryContext) {
+        List<SelectionMetadata> selections = queryContext.getSelections();
+        List<String> fields = new ArrayList<>(selections.size());
+        List<Object> columns = new ArrayList<>(selections.size());
+        for (int c = 0; c < selections.size(); c++) {
+            String alias = selections.get(c).getAlias();
+            // the window row count and the keyset go into LoadSuccessParams, not into the rows
+            if (alias == null || isInternalAlias(alias)) {
+                continue;
+            }
+            Object[] values = new Object[tuples.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = tuples.get(i).get(c);
+            }
+            fields.add(alias);
+            columns.add(ColumnarRowData.column(values));
+        }
+        return new ColumnarRowData(fields, columns, tuples.size(), this.suppressFieldDotNotation);
+    }
+
+    /**
+     * Compiles how tuples selected with the given aliases are turned into rows.
+     * Internal aliases (window row count, keyset) are left out of the rows.
+     *
+     * @param aliases aliases of the tuple elements, in their order
+     * @return        the row layout
+     */
+    @NonNull
+    protected RowLayout rowLayout(@NonNull String[] aliases) {
+        String[] rowAliases = new String[aliases.length];
+        for (int i = 0; i < aliases.length; i++) {
+            String alias = aliases[i];
+            // the window row count goes into LoadSuccessParams.rowCount and the keyset into its cursor, not into the rows
+            if (alias != null && !isInternalAlias(alias)) {
+                rowAliases[i] = alias;
+            }
+        }
+        // when master detail eager, 1 more element will be in columns (collection of detail records)
+        return RowLayout.compile(rowAliases, !this.suppressFieldDotNotation, (this.masterDetail && !this.masterDetailLazy) ? 1 : 0);
+    }
     
     @NonNull
     protected Predicate createAdvancedFilterPredicate(@NonNull CriteriaBuilder cb, @NonNull Root<E> root, @NonNull Map<String, Object> filterModel) {
@@ -2764,7 +4474,7 @@ public class QueryBuilder<E, E_ID, D> {
             query.orderBy(cb.asc(path));
 
             // result
-            List<Object> result = this.entityManager.createQuery(query).getResultList();
+            List<Object> result = this.createQuery(query).getResultList();
             pivotValues.put(field, result);
         }
 
@@ -2853,7 +4563,7 @@ public class QueryBuilder<E, E_ID, D> {
         if (this.alwaysAppliedPredicate != null) {
             query.where(this.alwaysAppliedPredicate.apply(cb, root));
         }
-        return this.entityManager.createQuery(query).getSingleResult();
+        return this.createQuery(query).getSingleResult();
     }
 
     @NonNull
@@ -2932,6 +4642,12 @@ public class QueryBuilder<E, E_ID, D> {
         protected boolean getChildCount;
         protected String getChildCountFieldName;
         protected boolean includeRowCountInLoadSuccessParams;
+        protected boolean rowCountFromLastBlock;
+        protected Function<CriteriaBuilder, Expression<? extends Number>> rowCountWindowFunction;
+        protected boolean keysetPagination;
+        protected EntityManagerFactory parallelEntityManagerFactory;
+        protected Executor parallelExecutor;
+        protected Supplier<EntityManager> entityManagerSupplier;
 
         protected boolean isQuickFilterPresent;
         protected Function<String, List<String>> quickFilterParser = DEFAULT_QUICK_FILTER_PARSER;
@@ -2957,6 +4673,18 @@ public class QueryBuilder<E, E_ID, D> {
         private MasterDetailParams<E, E_ID, D> masterDetailParams;
         private Function<Map<String, Object>, MasterDetailParams<E, E_ID, D>> dynamicMasterDetailParams;
         private boolean grandTotalRow;
+        private QueryMetricsListener queryMetricsListener;
+        private Integer maxStatementsPerRequest;
+        private StatementBudgetAction statementBudgetAction = StatementBudgetAction.THROW;
+        private boolean bindFilterValuesAsParameters;
+        private Integer compiledQueryCacheSize;
+        private Supplier<?> compiledQueryCacheContext;
+        private Duration compiledQueryCacheTtl;
+        private Integer streamFetchSize;
+        private boolean columnarResponse;
+        private boolean fetchIdsFirst;
+        private SetFilterValuesCache setFilterValuesCache;
+        private Supplier<?> setFilterValuesCacheContext;
         
         private Map<String, ColDef<E, ?>> colDefs;
 
@@ -2964,7 +4692,8 @@ public class QueryBuilder<E, E_ID, D> {
             this(entityClass, primaryField, null, entityManager);
         }
         
-        protected Builder(@NonNull Class<E> entityClass, @NonNull SingularAttribute<E, E_ID> primaryField, Class<D> detailClass, @NonNull EntityManager entityManager) {
+        // without an entity manager, every call has to bring its own
+        protected Builder(@NonNull Class<E> entityClass, @NonNull SingularAttribute<E, E_ID> primaryField, Class<D> detailClass, EntityManager entityManager) {
             this.entityClass = entityClass;
             this.primaryField = primaryField;
             this.detailClass = detailClass;
@@ -3000,7 +4729,8 @@ public class QueryBuilder<E, E_ID, D> {
         @SafeVarargs
         @NonNull
         public final Builder<E, E_ID, D> colDefs(@NonNull ColDef<E, ?>... colDefs) {
-            this.colDefs = new HashMap<>(colDefs.length);
+            // in the order given, it is the column order of basic rows and exports
+            this.colDefs = new LinkedHashMap<>(colDefs.length);
             for (ColDef<E, ?> colDef : colDefs) {
                 this.colDefs.put(colDef.getFieldName(), colDef);
             }
@@ -3009,7 +4739,7 @@ public class QueryBuilder<E, E_ID, D> {
         
         @NonNull
         public Builder<E, E_ID, D> colDefs(@NonNull Collection<ColDef<E, ?>> colDefs) {
-            this.colDefs = new HashMap<>(colDefs.size());
+            this.colDefs = new LinkedHashMap<>(colDefs.size());
             for (ColDef<E, ?> colDef : colDefs) {
                 this.colDefs.put(colDef.getFieldName(), colDef);
             }
@@ -3112,6 +4842,87 @@ public class QueryBuilder<E, E_ID, D> {
             this.includeRowCountInLoadSuccessParams = includeRowCountInLoadSuccessParams;
             return this;
         }
+
+        @NonNull
+        public Builder<E, E_ID, D> rowCountFromLastBlock(boolean rowCountFromLastBlock) {
+            this.rowCountFromLastBlock = rowCountFromLastBlock;
+            return this;
+        }
+
+        /**
+         * Selects the row count in the rows query itself, as {@code COUNT(*) OVER ()}, instead of running
+         * {@link QueryBuilder#countRows} after it. JPA has no window functions, so the expression comes from
+         * the provider, e.g. with Hibernate 6:
+         * <pre>
+         *   .rowCountWindowFunction(cb -&gt; {
+         *       HibernateCriteriaBuilder hcb = (HibernateCriteriaBuilder) cb;
+         *       return hcb.count(hcb.literal(1), hcb.createWindow());
+         *   })
+         * </pre>
+         * Only used together with {@code includeRowCountInLoadSuccessParams}.
+         *
+         * @param rowCountWindowFunction creates the window count expression, {@code null} to count with a separate query
+         * @return this builder
+         */
+        @NonNull
+        public Builder<E, E_ID, D> rowCountWindowFunction(Function<CriteriaBuilder, Expression<? extends Number>> rowCountWindowFunction) {
+            this.rowCountWindowFunction = rowCountWindowFunction;
+            return this;
+        }
+
+        /**
+         * Pages the rows of the basic and grouped grid by their sort values instead of by offset. The order is
+         * completed with the primary field, or with the group column for group rows, every block returns the sort values of its last row as
+         * {@link LoadSuccessParams#getCursor()}, and a request carrying that cursor reads the rows after it
+         * ({@code WHERE (sort columns) > (cursor)}) instead of skipping {@code startRow} rows, so a block deep
+         * in the data costs about the same as the first one.
+         * <p>
+         * Requests without a cursor, e.g. after the grid jumped to a block it has no cursor for, fall back to the offset.
+         * <p>
+         * {@code NULL} sort values are ordered as the largest value, last ascending and first descending, whatever
+         * the database does otherwise, so that the cursor can seek past them. Ordering by whether a value is null
+         * comes first for every column that can be null, which keeps the database from reading those in index order.
+         *
+         * @param keysetPagination whether to page by the cursor of the previous block
+         * @return this builder
+         */
+        @NonNull
+        public Builder<E, E_ID, D> keysetPagination(boolean keysetPagination) {
+            this.keysetPagination = keysetPagination;
+            return this;
+        }
+
+        /**
+         * Runs the grand total and row count queries of {@link QueryBuilder#getRows} at the same time as the
+         * page query, each on its own short-lived entity manager from the factory. The page query stays on the
+         * query builder's entity manager. The executor should not limit blocking work, e.g.
+         * {@code Executors.newVirtualThreadPerTaskExecutor()} on Java 21 or a cached thread pool.
+         *
+         * @param entityManagerFactory factory of the entity managers for the parallel queries
+         * @param executor             executor to run the parallel queries on
+         * @return this builder
+         */
+        @NonNull
+        public Builder<E, E_ID, D> parallelQueries(@NonNull EntityManagerFactory entityManagerFactory, @NonNull Executor executor) {
+            this.parallelEntityManagerFactory = entityManagerFactory;
+            this.parallelExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Source of the entity managers for {@code getRowsAsync}, {@code countRowsAsync} and
+         * {@code getGrandTotalDataAsync}. Every asynchronous call takes a new one and closes it when done,
+         * so the supplier must hand out entity managers the call owns, e.g. {@code entityManagerFactory::createEntityManager}.
+         * A query builder built without an entity manager also takes one per synchronous call that is not given one.
+         *
+         * @param entityManagerSupplier supplier of new entity managers
+         * @return this builder
+         */
+        @NonNull
+        public Builder<E, E_ID, D> entityManagerSupplier(@NonNull Supplier<EntityManager> entityManagerSupplier) {
+            this.entityManagerSupplier = entityManagerSupplier;
+            return this;
+        }
         
         @NonNull
         public Builder<E, E_ID, D> isExternalFilterPresent(boolean isExternalFilterPresent) {
@@ -3215,6 +5026,143 @@ public class QueryBuilder<E, E_ID, D> {
             return this;
         }
 
+        @NonNull
+        public Builder<E, E_ID, D> queryMetricsListener(@NonNull QueryMetricsListener queryMetricsListener) {
+            this.queryMetricsListener = queryMetricsListener;
+            return this;
+        }
+
+        @NonNull
+        public Builder<E, E_ID, D> maxStatementsPerRequest(Integer maxStatementsPerRequest) {
+            if (maxStatementsPerRequest != null && maxStatementsPerRequest <= 0) {
+                throw new IllegalArgumentException("max statements per request must be greater than zero");
+            }
+            this.maxStatementsPerRequest = maxStatementsPerRequest;
+            return this;
+        }
+
+        @NonNull
+        public Builder<E, E_ID, D> statementBudgetAction(@NonNull StatementBudgetAction statementBudgetAction) {
+            this.statementBudgetAction = statementBudgetAction;
+            return this;
+        }
+
+        @NonNull
+        public Builder<E, E_ID, D> bindFilterValuesAsParameters(boolean bindFilterValuesAsParameters) {
+            this.bindFilterValuesAsParameters = bindFilterValuesAsParameters;
+            return this;
+        }
+
+        @NonNull
+        public Builder<E, E_ID, D> compiledQueryCacheSize(Integer compiledQueryCacheSize) {
+            if (compiledQueryCacheSize != null && compiledQueryCacheSize <= 0) {
+                throw new IllegalArgumentException("compiled query cache size must be greater than zero");
+            }
+            this.compiledQueryCacheSize = compiledQueryCacheSize;
+            return this;
+        }
+
+        @NonNull
+        public Builder<E, E_ID, D> compiledQueryCacheTtl(Duration compiledQueryCacheTtl) {
+            if (compiledQueryCacheTtl != null && (compiledQueryCacheTtl.isZero() || compiledQueryCacheTtl.isNegative())) {
+                throw new IllegalArgumentException("compiled query cache ttl must be greater than zero");
+            }
+            this.compiledQueryCacheTtl = compiledQueryCacheTtl;
+            return this;
+        }
+
+        /**
+         * What the built queries depend on besides the request, called for every lookup in the compiled query cache.
+         * The cached queries keep the predicate of {@code alwaysAppliedPredicate}, so when that reads state of the
+         * current call, e.g. the tenant from a thread local or the security context, the supplier must return it,
+         * otherwise one tenant's query would be served to another. While an always applied predicate is configured
+         * without this supplier, nothing is cached; for a predicate that depends on nothing, supply a constant.
+         *
+         * @param compiledQueryCacheContext supplier of the context, its values must implement equals and hashCode
+         * @return this builder
+         */
+        @NonNull
+        public Builder<E, E_ID, D> compiledQueryCacheContext(Supplier<?> compiledQueryCacheContext) {
+            this.compiledQueryCacheContext = compiledQueryCacheContext;
+            return this;
+        }
+
+        /**
+         * JDBC fetch size of {@link QueryBuilder#streamRows}, i.e. how many rows the driver holds in memory at once.
+         * Passed to the provider as a query hint, some drivers (e.g. PostgreSQL) only honour it inside a transaction.
+         *
+         * @param streamFetchSize rows per round trip, {@code null} for the driver's default
+         * @return this builder
+         */
+        @NonNull
+        public Builder<E, E_ID, D> streamFetchSize(Integer streamFetchSize) {
+            if (streamFetchSize != null && streamFetchSize <= 0) {
+                throw new IllegalArgumentException("stream fetch size must be greater than zero");
+            }
+            this.streamFetchSize = streamFetchSize;
+            return this;
+        }
+
+        /**
+         * Returns the rows of {@link QueryBuilder#getRows} as {@link LoadSuccessParams#getColumnarRowData()}
+         * instead of {@link LoadSuccessParams#getRowData()}: every field once and an array of values per field,
+         * instead of a map per row repeating every field. The client expands it into rows for the grid.
+         * Not available with eagerly loaded master-detail rows, they are attached to row maps.
+         *
+         * @param columnarResponse whether to return the row data by column
+         * @return this builder
+         */
+        @NonNull
+        public Builder<E, E_ID, D> columnarResponse(boolean columnarResponse) {
+            this.columnarResponse = columnarResponse;
+            return this;
+        }
+
+        /**
+         * Fetches the rows of the basic grid in two queries (a deferred join): the rows query filters, sorts and
+         * pages selecting only the primary field, then the columns of the page are fetched by id and put back
+         * into the order of the first query. The database sorts and skips narrow rows instead of wide ones,
+         * which pays off with large offsets over many or joined columns. Other grid modes fetch in one query.
+         *
+         * @param fetchIdsFirst whether to fetch the ids of the page first and its columns after
+         * @return this builder
+         */
+        @NonNull
+        public Builder<E, E_ID, D> fetchIdsFirst(boolean fetchIdsFirst) {
+            this.fetchIdsFirst = fetchIdsFirst;
+            return this;
+        }
+
+        /**
+         * Caches the values of {@link QueryBuilder#supplySetFilterValues}, so that opening a set filter does not
+         * select the distinct values of the whole table every time. The cache can be shared between query builders,
+         * keep a reference to it to read its hit and miss counts.
+         *
+         * @param setFilterValuesCache the cache, {@code null} to load the values every time
+         * @return this builder
+         */
+        @NonNull
+        public Builder<E, E_ID, D> setFilterValuesCache(SetFilterValuesCache setFilterValuesCache) {
+            this.setFilterValuesCache = setFilterValuesCache;
+            return this;
+        }
+
+        /**
+         * What the set filter values depend on besides the column, called for every lookup in the
+         * {@link #setFilterValuesCache(SetFilterValuesCache) set filter values cache}. Needed when the
+         * {@code alwaysAppliedPredicate} reads state of the current request, e.g. returns the tenant
+         * it restricts the rows to. With an {@code alwaysAppliedPredicate} and no context, set filter values
+         * are not cached at all, so that the values of one tenant are never served to the others.
+         *
+         * @param setFilterValuesCacheContext supplier of the context, its values must implement equals and hashCode
+         * @return this builder
+         */
+        @NonNull
+        public Builder<E, E_ID, D> setFilterValuesCacheContext(Supplier<?> setFilterValuesCacheContext) {
+            this.setFilterValuesCacheContext = setFilterValuesCacheContext;
+            return this;
+        }
+
         
         @NonNull
         public Builder<E, E_ID, D> registerCustomAggFunction(@NonNull String name, @NonNull BiFunction<CriteriaBuilder, Expression<?>, Expression<?>> function) {
@@ -3268,6 +5216,9 @@ public class QueryBuilder<E, E_ID, D> {
                     throw new IllegalStateException("Must provide primaryFieldName for master-detail relationship");
                 }
                 if (!this.masterDetailLazy) {
+                    if (this.columnarResponse) {
+                        throw new IllegalStateException("columnarResponse can not carry eagerly loaded detail rows, set masterDetailLazy to true");
+                    }
                     if (this.masterDetailRowDataFieldName == null) {
                         throw new IllegalStateException("When masterDetailLazy is set to false, masterDetailRowDataFieldName must be provided");
                     } else if (this.dynamicMasterDetailParams == null && this.masterDetailParams.detailColDefs.containsKey(this.masterDetailRowDataFieldName)) {
@@ -3442,6 +5393,56 @@ public class QueryBuilder<E, E_ID, D> {
             }
         }
     }
-    
-    
+
+    /**
+     * State of one public call (including the calls it makes internally), kept per thread.
+     */
+    protected static class CallScope {
+        private int depth;
+        // shared with the scopes of the parts running in parallel
+        private final AtomicInteger statements;
+        // created on first use when filter values are bound as parameters
+        private CriteriaBuilder criteriaBuilder;
+        // set for a call on an entity manager other than the query builder's
+        private EntityManager entityManager;
+        // taken from entityManagerSupplier by the scope itself, closed with it
+        private boolean ownsEntityManager;
+
+        protected CallScope() {
+            this(new AtomicInteger());
+        }
+
+        private CallScope(AtomicInteger statements) {
+            this.statements = statements;
+        }
+
+        /**
+         * @return number of statements issued so far by the call, including its parallel parts
+         */
+        public int getStatementCount() {
+            return this.statements.get();
+        }
+
+        /**
+         * Scope of a call running on the given entity manager instead of the query builder's.
+         * Its depth starts at one, so the public methods it calls do not discard it when they return.
+         */
+        private static CallScope on(EntityManager entityManager) {
+            CallScope scope = new CallScope();
+            scope.depth = 1;
+            scope.entityManager = entityManager;
+            return scope;
+        }
+
+        /**
+         * Scope of a part of this call running on another thread on its own entity manager.
+         * Its depth starts at one, so the public methods it calls do not discard it when they return.
+         */
+        private CallScope fork(EntityManager entityManager) {
+            CallScope fork = new CallScope(this.statements);
+            fork.depth = 1;
+            fork.entityManager = entityManager;
+            return fork;
+        }
+    }
 }
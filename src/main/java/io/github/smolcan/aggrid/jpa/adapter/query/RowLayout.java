@@ -0,0 +1,159 @@
+package io.github.smolcan.aggrid.jpa.adapter.query;
+
+import jakarta.persistence.Tuple;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plan for turning tuples into row maps, compiled once from the selection aliases of a query.
+ * <p>
+ * Dot notation aliases like {@code book.desk.region} are split when the layout is compiled, every nested
+ * map of the row becomes a node with a known parent and size. Filling a row is then a loop over arrays:
+ * create the presized nodes, link them to their parents and put each value into its node, without
+ * parsing aliases or looking up nested maps per row.
+ * <p>
+ * An alias that is also the prefix of another one ({@code product} and {@code product.name}) would need
+ * {@code product} to be a value and a nested map at once, such layouts are rejected when compiled.
+ */
+public final class RowLayout {
+
+    private static final String ROOT = "";
+
+    // tuple element of each column
+    private final int[] tupleIndexes;
+    // node the column is put into and its key there
+    private final int[] columnNodes;
+    private final String[] columnKeys;
+    // nested maps, node 0 is the row itself, parents always come before their children
+    private final int[] nodeParents;
+    private final String[] nodeKeys;
+    private final int[] nodeCapacities;
+
+    private RowLayout(int[] tupleIndexes, int[] columnNodes, String[] columnKeys, int[] nodeParents, String[] nodeKeys, int[] nodeCapacities) {
+        this.tupleIndexes = tupleIndexes;
+        this.columnNodes = columnNodes;
+        this.columnKeys = columnKeys;
+        this.nodeParents = nodeParents;
+        this.nodeKeys = nodeKeys;
+        this.nodeCapacities = nodeCapacities;
+    }
+
+    /**
+     * Compiles the layout of rows selected with the given aliases.
+     *
+     * @param aliases      aliases of the tuple elements in their order, {@code null} for elements left out of the rows
+     * @param dotNotation  whether aliases with dots are nested into maps
+     * @param extraEntries entries the row map gets after it is filled, e.g. detail rows
+     * @return             the layout
+     * @throws IllegalArgumentException if an alias is both a value and a nested map, e.g. {@code product} and {@code product.name}
+     */
+    @NonNull
+    public static RowLayout compile(@NonNull String[] aliases, boolean dotNotation, int extraEntries) {
+        // node path -> node index, in creation order
+        Map<String, Integer> nodeIndexes = new LinkedHashMap<>();
+        List<Integer> nodeParents = new ArrayList<>();
+        List<String> nodeKeys = new ArrayList<>();
+        List<Integer> nodeSizes = new ArrayList<>();
+        nodeIndexes.put(ROOT, 0);
+        nodeParents.add(-1);
+        nodeKeys.add(null);
+        nodeSizes.add(extraEntries);
+
+        List<Integer> tupleIndexes = new ArrayList<>(aliases.length);
+        List<Integer> columnNodes = new ArrayList<>(aliases.length);
+        List<String> columnKeys = new ArrayList<>(aliases.length);
+        // node path of every value, to tell the paths that are both a value and a nested map
+        Map<String, String> valuePaths = new HashMap<>();
+        for (int i = 0; i < aliases.length; i++) {
+            String alias = aliases[i];
+            if (alias == null) {
+                continue;
+            }
+
+            String[] parts = dotNotation && alias.indexOf('.') >= 0 ? alias.split("\\.") : new String[]{alias};
+            int node = 0;
+            String path = ROOT;
+            for (int level = 0; level < parts.length - 1; level++) {
+                path = path + '.' + parts[level];
+                Integer existing = nodeIndexes.get(path);
+                if (existing == null) {
+                    if (valuePaths.containsKey(path)) {
+                        throw conflict(valuePaths.get(path), alias);
+                    }
+                    // new nested map, one more entry in its parent
+                    existing = nodeParents.size();
+                    nodeIndexes.put(path, existing);
+                    nodeParents.add(node);
+                    nodeKeys.add(parts[level]);
+                    nodeSizes.add(0);
+                    nodeSizes.set(node, nodeSizes.get(node) + 1);
+                }
+                node = existing;
+            }
+
+            path = path + '.' + parts[parts.length - 1];
+            if (nodeIndexes.containsKey(path)) {
+                throw conflict(alias, nestedAlias(aliases, path));
+            }
+            valuePaths.putIfAbsent(path, alias);
+
+            tupleIndexes.add(i);
+            columnNodes.add(node);
+            columnKeys.add(parts[parts.length - 1]);
+            nodeSizes.set(node, nodeSizes.get(node) + 1);
+        }
+
+        return new RowLayout(
+                tupleIndexes.stream().mapToInt(Integer::intValue).toArray(),
+                columnNodes.stream().mapToInt(Integer::intValue).toArray(),
+                columnKeys.toArray(new String[0]),
+                nodeParents.stream().mapToInt(Integer::intValue).toArray(),
+                nodeKeys.toArray(new String[0]),
+                // presized so that the maps never rehash while being filled
+                nodeSizes.stream().mapToInt(size -> (int) (size / 0.75f) + 1).toArray()
+        );
+    }
+
+    private static IllegalArgumentException conflict(String valueAlias, String nestedAlias) {
+        return new IllegalArgumentException(String.format(
+                "Field '%s' can not be a value and the parent of field '%s' at once, suppress field dot notation or rename one of them.",
+                valueAlias, nestedAlias));
+    }
+
+    // the alias nested under the node path, for the message
+    private static String nestedAlias(String[] aliases, String path) {
+        String prefix = path.substring(1) + '.';
+        for (String alias : aliases) {
+            if (alias != null && alias.startsWith(prefix)) {
+                return alias;
+            }
+        }
+        return prefix;
+    }
+
+    /**
+     * Fills a row from the tuple.
+     *
+     * @param tuple tuple of the query the layout was compiled for
+     * @return      the row
+     */
+    @NonNull
+    public Map<String, Object> toMap(@NonNull Tuple tuple) {
+        List<Map<String, Object>> nodes = new ArrayList<>(this.nodeParents.length);
+        nodes.add(new HashMap<>(this.nodeCapacities[0]));
+        for (int n = 1; n < this.nodeParents.length; n++) {
+            Map<String, Object> node = new HashMap<>(this.nodeCapacities[n]);
+            nodes.get(this.nodeParents[n]).put(this.nodeKeys[n], node);
+            nodes.add(node);
+        }
+        for (int c = 0; c < this.tupleIndexes.length; c++) {
+            nodes.get(this.columnNodes[c]).put(this.columnKeys[c], tuple.get(this.tupleIndexes[c]));
+        }
+        return nodes.get(0);
+    }
+}
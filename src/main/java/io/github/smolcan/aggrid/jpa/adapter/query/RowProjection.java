@@ -0,0 +1,320 @@
+package io.github.smolcan.aggrid.jpa.adapter.query;
+
+import io.github.smolcan.aggrid.jpa.adapter.utils.Utils;
+import jakarta.persistence.Tuple;
+import lombok.NonNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Plan for turning tuples into instances of a row class, compiled once from the selection aliases of a query.
+ * <p>
+ * An alias is matched to the property of the same name, dot notation aliases to their camel case form
+ * ({@code product.name} to {@code productName}). Aliases without a property are left out, properties
+ * without an alias stay {@code null} (or zero for primitives). Values are converted to the property type
+ * like cursor values are, e.g. a {@code Long} count into an {@code Integer} property.
+ * <p>
+ * Rows are flat: where map rows nest {@code product.name} into a {@code product} map, the row class has
+ * a {@code productName} property and serializes to JSON of that shape.
+ * <p>
+ * The row class is one of:
+ * <ul>
+ *   <li>a record, created through its canonical constructor</li>
+ *   <li>a class with a no-argument constructor, filled through its {@code setX} setters or else its fields</li>
+ *   <li>a class compiled with {@code -parameters}, created through its constructor with the most named parameters</li>
+ * </ul>
+ * How a class is created and filled is resolved into method handles once per class and cached.
+ *
+ * @param <R> the row class
+ */
+public final class RowProjection<R> {
+
+    private static final ClassValue<Target> TARGETS = new ClassValue<>() {
+        @Override
+        protected Target computeValue(Class<?> type) {
+            return Target.of(type);
+        }
+    };
+
+    private final Class<R> rowType;
+    private final Target target;
+    // by constructor: tuple element of each argument, -1 for none
+    // by setters: tuple element of each setter
+    private final int[] tupleIndexes;
+    private final Property[] properties;
+
+    private RowProjection(Class<R> rowType, Target target, int[] tupleIndexes, Property[] properties) {
+        this.rowType = rowType;
+        this.target = target;
+        this.tupleIndexes = tupleIndexes;
+        this.properties = properties;
+    }
+
+    /**
+     * Compiles the projection of rows selected with the given aliases.
+     *
+     * @param rowType the row class
+     * @param aliases aliases of the tuple elements in their order, {@code null} for elements left out of the rows
+     * @param <R>     the row class
+     * @return        the projection
+     * @throws IllegalArgumentException if the row class can not be created
+     */
+    @NonNull
+    public static <R> RowProjection<R> compile(@NonNull Class<R> rowType, @NonNull String[] aliases) {
+        Target target = TARGETS.get(rowType);
+        if (target.constructorArguments != null) {
+            int[] tupleIndexes = new int[target.constructorArguments.length];
+            for (int a = 0; a < tupleIndexes.length; a++) {
+                tupleIndexes[a] = indexOf(aliases, target.constructorArguments[a].name);
+            }
+            return new RowProjection<>(rowType, target, tupleIndexes, target.constructorArguments);
+        }
+
+        int count = 0;
+        int[] tupleIndexes = new int[aliases.length];
+        Property[] properties = new Property[aliases.length];
+        for (int i = 0; i < aliases.length; i++) {
+            Property property = aliases[i] != null ? target.setters.get(propertyName(aliases[i])) : null;
+            if (property != null) {
+                tupleIndexes[count] = i;
+                properties[count] = property;
+                count++;
+            }
+        }
+        return new RowProjection<>(rowType, target, Arrays.copyOf(tupleIndexes, count), Arrays.copyOf(properties, count));
+    }
+
+    /**
+     * Creates a row from the tuple.
+     *
+     * @param tuple tuple of the query the projection was compiled for
+     * @return      the row
+     */
+    @NonNull
+    public R toRow(@NonNull Tuple tuple) {
+        try {
+            if (this.target.constructorArguments != null) {
+                Object[] arguments = new Object[this.properties.length];
+                for (int a = 0; a < arguments.length; a++) {
+                    Object value = this.tupleIndexes[a] >= 0 ? tuple.get(this.tupleIndexes[a]) : null;
+                    arguments[a] = value != null ? this.properties[a].convert(value) : this.properties[a].defaultValue;
+                }
+                return this.rowType.cast((Object) this.target.constructor.invokeExact(arguments));
+            }
+
+            Object row = (Object) this.target.constructor.invokeExact();
+            for (int p = 0; p < this.properties.length; p++) {
+                Object value = tuple.get(this.tupleIndexes[p]);
+                // a primitive keeps its default
+                if (value != null) {
+                    this.properties[p].setter.invokeExact(row, this.properties[p].convert(value));
+                }
+            }
+            return this.rowType.cast(row);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Can not create row of type " + this.rowType.getName(), e);
+        }
+    }
+
+    private static int indexOf(String[] aliases, String propertyName) {
+        for (int i = 0; i < aliases.length; i++) {
+            if (aliases[i] != null && propertyName(aliases[i]).equals(propertyName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String propertyName(String alias) {
+        if (alias.indexOf('.') < 0) {
+            return alias;
+        }
+        String[] parts = alias.split("\\.");
+        StringBuilder name = new StringBuilder(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            if (!parts[i].isEmpty()) {
+                name.append(Character.toUpperCase(parts[i].charAt(0))).append(parts[i], 1, parts[i].length());
+            }
+        }
+        return name.toString();
+    }
+
+    /**
+     * A constructor argument or a settable property of the row class.
+     */
+    private static final class Property {
+        private final String name;
+        private final Class<?> type;
+        // type of the value, the wrapper for primitives
+        private final Class<?> valueType;
+        // (Object, Object) void, null for constructor arguments
+        private final MethodHandle setter;
+        // what a missing value becomes, zero for primitives
+        private final Object defaultValue;
+
+        private Property(String name, Class<?> type, MethodHandle setter) {
+            this.name = name;
+            this.type = type;
+            this.valueType = MethodType.methodType(type).wrap().returnType();
+            this.setter = setter;
+            this.defaultValue = type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+        }
+
+        private Object convert(Object value) {
+            Object converted = Utils.convertJsonValue(value, this.type);
+            if (!this.valueType.isInstance(converted)) {
+                throw new IllegalArgumentException("Value of type " + converted.getClass().getName() + " can not be set to " + this.name + " of type " + this.type.getName());
+            }
+            return converted;
+        }
+    }
+
+    /**
+     * How instances of a row class are created and filled, resolved once per class.
+     */
+    private static final class Target {
+        // by constructor: (Object[]) Object, by setters: () Object
+        private final MethodHandle constructor;
+        private final Property[] constructorArguments;
+        private final Map<String, Property> setters;
+
+        private Target(MethodHandle constructor, Property[] constructorArguments, Map<String, Property> setters) {
+            this.constructor = constructor;
+            this.constructorArguments = constructorArguments;
+            this.setters = setters;
+        }
+
+        private static Target of(Class<?> type) {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+
+                Constructor<?> canonical = canonicalConstructor(type);
+                if (canonical != null) {
+                    return byConstructor(lookup, canonical, recordComponentNames(type));
+                }
+
+                Constructor<?> noArgs = null;
+                Constructor<?> named = null;
+                for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+                    if (constructor.getParameterCount() == 0) {
+                        noArgs = constructor;
+                    } else if (allNamed(constructor) && (named == null || constructor.getParameterCount() > named.getParameterCount())) {
+                        named = constructor;
+                    }
+                }
+                if (noArgs != null) {
+                    return bySetters(lookup, type, noArgs);
+                }
+                if (named != null) {
+                    String[] names = new String[named.getParameterCount()];
+                    for (int p = 0; p < names.length; p++) {
+                        names[p] = named.getParameters()[p].getName();
+                    }
+                    return byConstructor(lookup, named, names);
+                }
+                throw new IllegalArgumentException("Row type " + type.getName() + " needs a no-argument constructor or a constructor compiled with -parameters");
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Row type " + type.getName() + " is not accessible", e);
+            }
+        }
+
+        private static Target byConstructor(MethodHandles.Lookup lookup, Constructor<?> constructor, String[] names) throws IllegalAccessException {
+            Class<?>[] types = constructor.getParameterTypes();
+            Property[] arguments = new Property[types.length];
+            for (int p = 0; p < types.length; p++) {
+                arguments[p] = new Property(names[p], types[p], null);
+            }
+            MethodHandle handle = lookup.unreflectConstructor(constructor)
+                    .asSpreader(Object[].class, types.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+            return new Target(handle, arguments, null);
+        }
+
+        private static Target bySetters(MethodHandles.Lookup lookup, Class<?> type, Constructor<?> noArgs) throws IllegalAccessException {
+            MethodType setterType = MethodType.methodType(void.class, Object.class, Object.class);
+            Map<String, Property> setters = new HashMap<>();
+            // fields first, setters of the same name replace them
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()) || setters.containsKey(field.getName())) {
+                        continue;
+                    }
+                    MethodHandle setter = MethodHandles.privateLookupIn(c, MethodHandles.lookup()).unreflectSetter(field).asType(setterType);
+                    setters.put(field.getName(), new Property(field.getName(), field.getType(), setter));
+                }
+            }
+            for (Method method : type.getMethods()) {
+                String name = method.getName();
+                if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 1 || name.length() < 4 || !name.startsWith("set")) {
+                    continue;
+                }
+                String propertyName = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+                MethodHandle setter = lookup.unreflect(method).asType(setterType);
+                setters.put(propertyName, new Property(propertyName, method.getParameterTypes()[0], setter));
+            }
+            MethodHandle constructor = lookup.unreflectConstructor(noArgs).asType(MethodType.methodType(Object.class));
+            return new Target(constructor, null, setters);
+        }
+
+        private static boolean allNamed(Constructor<?> constructor) {
+            for (Parameter parameter : constructor.getParameters()) {
+                if (!parameter.isNamePresent()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // records exist from java 16, read reflectively to keep compiling for java 11
+
+        private static Object[] recordComponents(Class<?> type) {
+            try {
+                return (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+
+        private static String[] recordComponentNames(Class<?> type) {
+            Object[] components = recordComponents(type);
+            String[] names = new String[components.length];
+            try {
+                for (int c = 0; c < components.length; c++) {
+                    names[c] = (String) components[c].getClass().getMethod("getName").invoke(components[c]);
+                }
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Can not read components of record " + type.getName(), e);
+            }
+            return names;
+        }
+
+        private static Constructor<?> canonicalConstructor(Class<?> type) {
+            Object[] components = recordComponents(type);
+            if (components == null) {
+                return null;
+            }
+            try {
+                Class<?>[] types = new Class<?>[components.length];
+                for (int c = 0; c < components.length; c++) {
+                    types[c] = (Class<?>) components[c].getClass().getMethod("getType").invoke(components[c]);
+                }
+                return type.getDeclaredConstructor(types);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Can not find canonical constructor of record " + type.getName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package io.github.smolcan.aggrid.jpa.adapter.query;
+
+/**
+ * What {@link QueryBuilder} does when a call issues more statements than {@code maxStatementsPerRequest} allows.
+ */
+public enum StatementBudgetAction {
+    /** Log a warning on the first statement over the budget and carry on. */
+    LOG,
+    /** Throw {@link io.github.smolcan.aggrid.jpa.adapter.exceptions.StatementBudgetExceededException} before running the statement over the budget. */
+    THROW,
+    ;
+}
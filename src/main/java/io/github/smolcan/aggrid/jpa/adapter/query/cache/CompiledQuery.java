@@ -0,0 +1,50 @@
+package io.github.smolcan.aggrid.jpa.adapter.query.cache;
+
+import io.github.smolcan.aggrid.jpa.adapter.query.metadata.QueryContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.ParameterExpression;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.Map;
+
+/**
+ * A fully built criteria query kept in a {@link CompiledQueryCache}, together with what is needed
+ * to execute it again without rebuilding it.
+ *
+ * @param <T> result type of the query
+ */
+@Getter
+public class CompiledQuery<T> {
+
+    /**
+     * @return the built criteria query, must not be modified
+     */
+    private final CriteriaQuery<T> query;
+    /**
+     * @return context the query was built with, {@code null} if the caller does not need it
+     */
+    private final QueryContext<?> queryContext;
+    /**
+     * @return values of the parameters created while building the query
+     */
+    private final Map<ParameterExpression<?>, Object> parameterBindings;
+    private final long createdAtNanos = System.nanoTime();
+
+    public CompiledQuery(@NonNull CriteriaQuery<T> query, QueryContext<?> queryContext, @NonNull Map<ParameterExpression<?>, Object> parameterBindings) {
+        this.query = query;
+        this.queryContext = queryContext;
+        this.parameterBindings = Map.copyOf(parameterBindings);
+    }
+
+    /**
+     * Binds the parameter values recorded while building the query.
+     *
+     * @param typedQuery query created from {@link #getQuery()}
+     */
+    @SuppressWarnings("unchecked")
+    public void bind(@NonNull TypedQuery<T> typedQuery) {
+        this.parameterBindings.forEach((parameter, value) -> typedQuery.setParameter((ParameterExpression<Object>) parameter, value));
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.smolcan.aggrid.jpa.adapter.query.cache;
+
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used cache of {@link CompiledQuery} keyed by {@link RequestShape},
+ * with an optional time to live. Safe to share between threads.
+ */
+public class CompiledQueryCache {
+
+    private final int maxSize;
+    private final Long ttlNanos;
+    private final Map<RequestShape, CompiledQuery<?>> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxSize maximum number of cached queries, the least recently used one is evicted beyond it
+     * @param ttl     how long a query stays usable after being built, {@code null} for no expiry
+     */
+    public CompiledQueryCache(int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("compiled query cache size must be greater than zero");
+        }
+        if (ttl != null && (ttl.isZero() || ttl.isNegative())) {
+            throw new IllegalArgumentException("compiled query cache ttl must be greater than zero");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl == null ? null : ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RequestShape, CompiledQuery<?>> eldest) {
+                return this.size() > CompiledQueryCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param shape shape of the request
+     * @param <T>   result type of the query
+     * @return      the cached query, {@code null} if there is none or it expired
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompiledQuery<T> get(@NonNull RequestShape shape) {
+        CompiledQuery<?> compiled;
+        synchronized (this.entries) {
+            compiled = this.entries.get(shape);
+            if (compiled != null && this.ttlNanos != null && System.nanoTime() - compiled.getCreatedAtNanos() > this.ttlNanos) {
+                this.entries.remove(shape);
+                compiled = null;
+            }
+        }
+        (compiled == null ? this.misses : this.hits).incrementAndGet();
+        return (CompiledQuery<T>) compiled;
+    }
+
+    /**
+     * @param shape    shape of the request the query was built for
+     * @param compiled the built query
+     */
+    public void put(@NonNull RequestShape shape, @NonNull CompiledQuery<?> compiled) {
+        synchronized (this.entries) {
+            this.entries.put(shape, compiled);
+        }
+    }
+
+    /**
+     * Removes all cached queries, e.g. after the data a filter resolves against changed.
+     */
+    public void invalidateAll() {
+        synchronized (this.entries) {
+            this.entries.clear();
+        }
+    }
+
+    /**
+     * @return number of cached queries
+     */
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * @return number of lookups that found a usable query
+     */
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    /**
+     * @return number of lookups that had to build the query
+     */
+    public long getMissCount() {
+        return this.misses.get();
+    }
+}
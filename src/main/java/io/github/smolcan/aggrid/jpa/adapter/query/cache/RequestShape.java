@@ -0,0 +1,130 @@
+package io.github.smolcan.aggrid.jpa.adapter.query.cache;
+
+import io.github.smolcan.aggrid.jpa.adapter.request.ColumnVO;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.request.SortModelItem;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache key of a compiled query: everything in a {@link ServerSideGetRowsRequest} that the built
+ * criteria query depends on. The row window ({@code startRow}, {@code endRow}) is left out, it is
+ * applied to the typed query, so scrolling through the same view hits the same key.
+ * <p>
+ * Filter models are part of the key including their values, because the filters put the values
+ * into the predicates they build. So is the context the query builder's own predicates depend on
+ * (e.g. the tenant the always applied predicate restricts the rows to), which the request does not carry.
+ */
+public final class RequestShape {
+
+    private final List<Object> components;
+    private final int hashCode;
+
+    private RequestShape(List<Object> components) {
+        this.components = components;
+        this.hashCode = components.hashCode();
+    }
+
+    /**
+     * @param queryKind which query of the request is cached (rows, count, ...)
+     * @param request   the request
+     * @return          the shape of the request
+     */
+    @NonNull
+    public static RequestShape of(@NonNull String queryKind, @NonNull ServerSideGetRowsRequest request) {
+        return of(queryKind, request, null);
+    }
+
+    /**
+     * @param queryKind which query of the request is cached (rows, count, ...)
+     * @param request   the request
+     * @param context   what the query depends on besides the request, may be null; must implement equals and hashCode
+     * @return          the shape of the request in the context
+     */
+    @NonNull
+    public static RequestShape of(@NonNull String queryKind, @NonNull ServerSideGetRowsRequest request, Object context) {
+        List<Object> components = new ArrayList<>();
+        components.add(queryKind);
+        components.add(context);
+        components.add(columns(request.getRowGroupCols()));
+        components.add(columns(request.getValueCols()));
+        components.add(request.isPivotMode());
+        components.add(columns(request.getPivotCols()));
+        components.add(new ArrayList<>(request.getGroupKeys()));
+        List<Object> sortModel = new ArrayList<>();
+        for (SortModelItem item : request.getSortModel()) {
+            sortModel.add(Arrays.asList(item.getColId(), item.getSort(), item.getType()));
+        }
+        components.add(sortModel);
+        components.add(deepCopy(request.getFilterModel()));
+        components.add(deepCopy(request.getExternalFilter()));
+        components.add(request.getQuickFilter());
+        // the cursor values are bound as parameters like the row window, only where the seek happens shapes the query
+        components.add(cursorShape(request));
+        components.add(deepCopy(request.getRequestedColumns()));
+        return new RequestShape(components);
+    }
+
+    private static List<Object> cursorShape(ServerSideGetRowsRequest request) {
+        if (request.getStartRow() <= 0 || request.getCursor() == null || request.getCursor().isEmpty()) {
+            return null;
+        }
+        List<Object> shape = new ArrayList<>(request.getCursor().size());
+        for (Object value : request.getCursor()) {
+            shape.add(value == null);
+        }
+        return shape;
+    }
+
+    private static List<Object> columns(List<ColumnVO> columns) {
+        List<Object> result = new ArrayList<>(columns.size());
+        for (ColumnVO column : columns) {
+            result.add(Arrays.asList(column.getId(), column.getField(), column.getAggFunc()));
+        }
+        return result;
+    }
+
+    // the key must not change while cached, even if the caller keeps mutating the request's maps
+    private static Object deepCopy(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((k, v) -> copy.put(k, deepCopy(v)));
+            return copy;
+        }
+        if (value instanceof Collection) {
+            List<Object> copy = new ArrayList<>();
+            ((Collection<?>) value).forEach(v -> copy.add(deepCopy(v)));
+            return copy;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RequestShape that = (RequestShape) o;
+        return this.hashCode == that.hashCode && this.components.equals(that.components);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    @NonNull
+    public String toString() {
+        return "RequestShape" + this.components;
+    }
+}
@@ -0,0 +1,201 @@
+package io.github.smolcan.aggrid.jpa.adapter.query.cache;
+
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used cache of set filter values, keyed by entity, the query builder that loaded them, column and
+ * the context the {@code alwaysAppliedPredicate} depends on (e.g. the tenant). Query builders of the same entity
+ * differ in their {@code alwaysAppliedPredicate} and in what their columns read, so each one has its own values.
+ * Bounded by the number of entries and
+ * optionally by their estimated size in bytes, with an optional time to live. Safe to share between
+ * threads and between query builders.
+ */
+public class SetFilterValuesCache {
+
+    private final int maxEntries;
+    private final Long maxBytes;
+    private final Long ttlNanos;
+    // access ordered, the eldest entry is the least recently used one
+    private final LinkedHashMap<List<Object>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxEntries maximum number of cached value lists, the least recently used one is evicted beyond it
+     * @param maxBytes   maximum estimated size of all cached values, {@code null} for no size bound
+     * @param ttl        how long values stay usable after being loaded, {@code null} for no expiry
+     */
+    public SetFilterValuesCache(int maxEntries, Long maxBytes, Duration ttl) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("set filter values cache size must be greater than zero");
+        }
+        if (maxBytes != null && maxBytes <= 0) {
+            throw new IllegalArgumentException("set filter values cache max bytes must be greater than zero");
+        }
+        if (ttl != null && (ttl.isZero() || ttl.isNegative())) {
+            throw new IllegalArgumentException("set filter values cache ttl must be greater than zero");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttl == null ? null : ttl.toNanos();
+    }
+
+    /**
+     * @param entityClass entity the values are selected from
+     * @param owner       the query builder the values are loaded by
+     * @param column      field name of the column
+     * @param context     what the values depend on besides the column, may be null
+     * @return            the cached values, {@code null} if there are none or they expired
+     */
+    public List<Object> get(@NonNull Class<?> entityClass, @NonNull Object owner, @NonNull String column, Object context) {
+        List<Object> key = key(entityClass, owner, column, context);
+        List<Object> values = null;
+        synchronized (this.entries) {
+            Entry entry = this.entries.get(key);
+            if (entry != null && this.ttlNanos != null && System.nanoTime() - entry.loadedAtNanos > this.ttlNanos) {
+                this.remove(key);
+            } else if (entry != null) {
+                values = entry.values;
+            }
+        }
+        (values == null ? this.misses : this.hits).incrementAndGet();
+        return values;
+    }
+
+    /**
+     * @param entityClass entity the values are selected from
+     * @param owner       the query builder the values are loaded by
+     * @param column      field name of the column
+     * @param context     what the values depend on besides the column, may be null
+     * @param values      the loaded values
+     * @return            the values as they are cached, unmodifiable
+     */
+    @NonNull
+    public List<Object> put(@NonNull Class<?> entityClass, @NonNull Object owner, @NonNull String column, Object context, @NonNull List<?> values) {
+        List<Object> cached = Collections.unmodifiableList(new ArrayList<>(values));
+        Entry entry = new Entry(cached, estimateBytes(cached));
+        List<Object> key = key(entityClass, owner, column, context);
+        synchronized (this.entries) {
+            this.remove(key);
+            this.entries.put(key, entry);
+            this.bytes += entry.bytes;
+            // the entry just put is the most recently used one, it is evicted last
+            Iterator<Map.Entry<List<Object>, Entry>> eldest = this.entries.entrySet().iterator();
+            while (this.entries.size() > this.maxEntries || (this.maxBytes != null && this.bytes > this.maxBytes && this.entries.size() > 1)) {
+                this.bytes -= eldest.next().getValue().bytes;
+                eldest.remove();
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Removes the cached values of a column in every context and of every query builder of the entity,
+     * e.g. after its values changed.
+     *
+     * @param entityClass entity the values are selected from
+     * @param column      field name of the column
+     */
+    public void invalidate(@NonNull Class<?> entityClass, @NonNull String column) {
+        synchronized (this.entries) {
+            Iterator<Map.Entry<List<Object>, Entry>> iterator = this.entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<List<Object>, Entry> entry = iterator.next();
+                if (entry.getKey().get(0).equals(entityClass) && entry.getKey().get(2).equals(column)) {
+                    this.bytes -= entry.getValue().bytes;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached values.
+     */
+    public void invalidateAll() {
+        synchronized (this.entries) {
+            this.entries.clear();
+            this.bytes = 0;
+        }
+    }
+
+    /**
+     * @return number of cached value lists
+     */
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * @return estimated size of all cached values in bytes
+     */
+    public long getEstimatedBytes() {
+        synchronized (this.entries) {
+            return this.bytes;
+        }
+    }
+
+    /**
+     * @return number of lookups that found usable values
+     */
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    /**
+     * @return number of lookups that had to load the values
+     */
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    private void remove(List<Object> key) {
+        Entry removed = this.entries.remove(key);
+        if (removed != null) {
+            this.bytes -= removed.bytes;
+        }
+    }
+
+    private static List<Object> key(Class<?> entityClass, Object owner, String column, Object context) {
+        // context may be null, the owner is compared by identity as query builders do not implement equals
+        return Arrays.asList(entityClass, owner, column, context);
+    }
+
+    // rough heap size: list slot, object header and payload
+    private static long estimateBytes(List<Object> values) {
+        long bytes = 16;
+        for (Object value : values) {
+            bytes += 8;
+            if (value instanceof CharSequence) {
+                bytes += 40 + 2L * ((CharSequence) value).length();
+            } else if (value != null) {
+                bytes += 24;
+            }
+        }
+        return bytes;
+    }
+
+    private static final class Entry {
+        private final List<Object> values;
+        private final long bytes;
+        private final long loadedAtNanos = System.nanoTime();
+
+        private Entry(List<Object> values, long bytes) {
+            this.values = values;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -23,5 +23,10 @@ public class HavingMetadata {
      * @return whether this predicate belongs to a pivoting query.
      */
     private final boolean isPivoting;
+    /**
+     * @param isKeysetPredicate whether this predicate seeks past the cursor of the previous block of groups.
+     * @return whether this predicate seeks past the cursor of the previous block of groups.
+     */
+    private final boolean isKeysetPredicate;
 
 }
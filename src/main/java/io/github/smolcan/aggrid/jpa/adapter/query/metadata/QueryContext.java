@@ -1,8 +1,10 @@
 package io.github.smolcan.aggrid.jpa.adapter.query.metadata;
 
 
+import io.github.smolcan.aggrid.jpa.adapter.query.metrics.GridMode;
 import jakarta.persistence.criteria.AbstractQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.ParameterExpression;
 import jakarta.persistence.criteria.Root;
 import lombok.*;
 
@@ -40,6 +42,13 @@ public class QueryContext<E> {
     private List<OrderMetadata> orders = new ArrayList<>();
     private int firstResult;
     private int maxResults;
+    // parameters of the seek predicate, one per keyset value, null where the value is not compared
+    @NonNull
+    private List<ParameterExpression<?>> keysetParameters = new ArrayList<>();
+    // values bound to the keyset parameters, part of the window like first and max results
+    private List<Object> keysetValues;
+    // mode the select clause was built for
+    private GridMode gridMode;
     @NonNull
     private PivotingContext pivotingContext = new PivotingContext();
 
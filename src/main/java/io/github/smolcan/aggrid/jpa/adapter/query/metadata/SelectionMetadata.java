@@ -57,5 +57,10 @@ public class SelectionMetadata {
      * @return whether this selection is a child-count value.
      */
     private final boolean isChildCountSelection;
+    /**
+     * @param isKeysetSelection whether this selection is a sort value selected for the keyset pagination cursor.
+     * @return whether this selection is a keyset pagination sort value.
+     */
+    private final boolean isKeysetSelection;
 
 }
@@ -89,5 +89,12 @@ public class WherePredicateMetadata {
      * @return whether this predicate comes from the quick filter.
      */
     private final boolean isAlwaysAppliedPredicate;
+
+    // keyset pagination predicate properties
+    /**
+     * @param isKeysetPredicate whether this predicate seeks past the cursor of the previous block.
+     * @return whether this predicate seeks past the cursor of the previous block.
+     */
+    private final boolean isKeysetPredicate;
     
 }
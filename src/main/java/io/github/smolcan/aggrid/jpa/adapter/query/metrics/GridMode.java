@@ -0,0 +1,14 @@
+package io.github.smolcan.aggrid.jpa.adapter.query.metrics;
+
+/**
+ * The mode a request is served in, in the order {@code QueryBuilder} checks for them:
+ * tree data and master-detail come from the builder configuration, pivoting and grouping from the request.
+ */
+public enum GridMode {
+    TREE_DATA,
+    MASTER_DETAIL,
+    PIVOTING,
+    GROUPING,
+    BASIC,
+    ;
+}
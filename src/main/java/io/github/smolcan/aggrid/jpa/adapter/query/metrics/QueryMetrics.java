@@ -0,0 +1,73 @@
+package io.github.smolcan.aggrid.jpa.adapter.query.metrics;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Timings and outcome of a single {@code getRows} call, handed to a {@link QueryMetricsListener}.
+ */
+@Getter
+@Setter
+public class QueryMetrics {
+
+    /**
+     * @param gridMode the mode chosen when building the select clause.
+     * @return the mode chosen when building the select clause.
+     */
+    private GridMode gridMode;
+    /**
+     * @param rowCount number of rows returned in the response.
+     * @return number of rows returned in the response.
+     */
+    private int rowCount;
+    /**
+     * @param statementCount number of statements the call issued, including grand total and row count.
+     * @return number of statements the call issued, including grand total and row count.
+     */
+    private int statementCount;
+    /**
+     * @param compiledQueryCacheHit whether the rows query came from the compiled query cache instead of being built.
+     * @return whether the rows query came from the compiled query cache instead of being built.
+     */
+    private boolean compiledQueryCacheHit;
+    
+    private final Map<QueryPhase, Long> phaseNanos = new EnumMap<>(QueryPhase.class);
+
+    /**
+     * Records the duration of a phase, adding to it if the phase was already recorded.
+     *
+     * @param phase the phase that finished
+     * @param nanos its duration in nanoseconds
+     */
+    public void recordPhase(@NonNull QueryPhase phase, long nanos) {
+        this.phaseNanos.merge(phase, nanos, Long::sum);
+    }
+
+    /**
+     * @return duration of each phase that ran, in nanoseconds, in execution order
+     */
+    @NonNull
+    public Map<QueryPhase, Long> getPhaseNanos() {
+        return Collections.unmodifiableMap(this.phaseNanos);
+    }
+
+    /**
+     * @param phase the phase to look up
+     * @return duration of the phase in nanoseconds, {@code 0} if it did not run
+     */
+    public long getNanos(@NonNull QueryPhase phase) {
+        return this.phaseNanos.getOrDefault(phase, 0L);
+    }
+
+    /**
+     * @return sum of all recorded phases in nanoseconds
+     */
+    public long getTotalNanos() {
+        return this.phaseNanos.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
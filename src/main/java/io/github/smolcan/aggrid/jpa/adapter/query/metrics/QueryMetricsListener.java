@@ -0,0 +1,13 @@
+package io.github.smolcan.aggrid.jpa.adapter.query.metrics;
+
+/**
+ * Receives the {@link QueryMetrics} of every {@code getRows} call, e.g. to export per-phase latencies
+ * to a metrics registry.
+ * <p>
+ * Called synchronously on the thread that served the request, after the response has been built,
+ * so implementations should be cheap and must not throw.
+ */
+@FunctionalInterface
+public interface QueryMetricsListener {
+    void onRowsLoaded(QueryMetrics metrics);
+}
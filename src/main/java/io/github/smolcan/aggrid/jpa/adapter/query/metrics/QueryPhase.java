@@ -0,0 +1,25 @@
+package io.github.smolcan.aggrid.jpa.adapter.query.metrics;
+
+/**
+ * The steps {@code QueryBuilder.getRows} runs through, in execution order.
+ * Phases that a request does not need (e.g. {@link #COUNT_ROWS} when the row count is not included
+ * in the response) are not recorded.
+ */
+public enum QueryPhase {
+    VALIDATE_REQUEST,
+    SELECT,
+    WHERE,
+    GROUP_BY,
+    HAVING,
+    ORDER_BY,
+    LIMIT_OFFSET,
+    /** Creating the typed query and running it against the database. */
+    APPLY,
+    /** Fetching the columns of the page by id when the rows query selected only the ids. */
+    FETCH_BY_IDS,
+    TUPLE_TO_MAP,
+    ATTACH_DETAIL_ROW_DATA,
+    GRAND_TOTAL,
+    COUNT_ROWS,
+    ;
+}
@@ -84,5 +84,17 @@ public class ServerSideGetRowsRequest {
      * @return whether the grand total row is needed.
      */
     private boolean needsGrandTotal;
+    /**
+     * @param cursor the {@link io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams#getCursor() cursor}
+     *               of the block that ends at {@code startRow}, to seek to this block instead of skipping {@code startRow} rows.
+     * @return the cursor of the previous block, if known.
+     */
+    private List<Object> cursor;
+    /**
+     * @param requestedColumns ids of the columns to select, usually the displayed ones; all columns when null.
+     *                         Ids that are not column definitions (selection or action columns) are ignored.
+     * @return the ids of the columns to select.
+     */
+    private List<String> requestedColumns;
 
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package io.github.smolcan.aggrid.jpa.adapter.request;
+
+
+import lombok.*;
+
+
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class SetFilterValuesRequest {
+    /**
+     * @param field the column whose values are requested.
+     * @return the column whose values are requested.
+     */
+    @NonNull
+    private String field;
+    /**
+     * @param searchText the text typed into the mini filter, {@code null} or empty for all values. Only text columns can be searched.
+     * @return the text typed into the mini filter.
+     */
+    private String searchText;
+    /**
+     * @param startsWith whether values must start with the search text instead of containing it.
+     * @return whether values must start with the search text.
+     */
+    private boolean startsWith;
+    /**
+     * @param caseSensitive whether the search text is matched case-sensitively.
+     * @return whether the search text is matched case-sensitively.
+     */
+    private boolean caseSensitive;
+    /**
+     * @param offset number of matching values to skip.
+     * @return number of matching values to skip.
+     */
+    private int offset;
+    /**
+     * @param limit maximum number of values to return, {@code null} for all of them.
+     * @return maximum number of values to return.
+     */
+    private Integer limit;
+    /**
+     * @param top with counts, only the values with the most rows, the rest are counted together; {@code null} for all values.
+     * @return the number of values with the most rows.
+     */
+    private Integer top;
+    /**
+     * @param rowsRequest the last rows request of the grid, values are only taken from the rows that pass its
+     *                    quick filter, external filter and the filters of the other columns; {@code null} to ignore them.
+     * @return the last rows request of the grid.
+     */
+    private ServerSideGetRowsRequest rowsRequest;
+}
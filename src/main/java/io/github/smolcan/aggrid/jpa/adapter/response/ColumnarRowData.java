@@ -0,0 +1,129 @@
+package io.github.smolcan.aggrid.jpa.adapter.response;
+
+import lombok.*;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Row data by column instead of by row: the fields once, then the values of each field as one array.
+ * Numeric columns without nulls are primitive arrays ({@code long[]}, {@code int[]}, {@code double[]},
+ * {@code float[]}), every other column is an {@code Object[]}. {@link java.math.BigDecimal} columns stay
+ * {@code Object[]}, a {@code double} would round them.
+ * <p>
+ * Fields are the flat aliases. AG Grid reads {@code "product.name"} from a nested {@code product} object
+ * unless {@code suppressFieldDotNotation} is set, so the client nests them the same way the row data is nested:
+ * <pre>
+ *   const rows = Array.from({ length: data.rowCount }, (_, i) =&gt; {
+ *       const row = {};
+ *       data.fields.forEach((field, c) =&gt; {
+ *           const keys = data.suppressFieldDotNotation ? [field] : field.split('.');
+ *           let node = row;
+ *           keys.slice(0, -1).forEach(key =&gt; node = node[key] ??= {});
+ *           node[keys[keys.length - 1]] = data.columns[c][i];
+ *       });
+ *       return row;
+ *   });
+ * </pre>
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class ColumnarRowData {
+    /**
+     * @param fields the fields of the columns.
+     * @return the fields of the columns.
+     */
+    private List<String> fields;
+    /**
+     * @param columns the values of each field, as an array per field in the order of the fields.
+     * @return the values of each field.
+     */
+    private List<Object> columns;
+    /**
+     * @param rowCount the number of rows, the length of every column.
+     * @return the number of rows.
+     */
+    private int rowCount;
+    /**
+     * @param suppressFieldDotNotation whether fields with dots are kept flat instead of nested into objects.
+     * @return whether fields with dots are kept flat.
+     */
+    private boolean suppressFieldDotNotation;
+
+    /**
+     * Stores the values of a column in the most compact array that holds them.
+     *
+     * @param values values of the column
+     * @return       primitive array if all values are non-null longs, integers, doubles or floats, the values otherwise
+     */
+    @NonNull
+    public static Object column(@NonNull Object[] values) {
+        Class<?> type = values.length > 0 && values[0] != null ? values[0].getClass() : null;
+        for (Object value : values) {
+            if (value == null || value.getClass() != type) {
+                return values;
+            }
+        }
+        if (type == Long.class) {
+            long[] column = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                column[i] = (Long) values[i];
+            }
+            return column;
+        }
+        if (type == Integer.class) {
+            int[] column = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                column[i] = (Integer) values[i];
+            }
+            return column;
+        }
+        if (type == Double.class) {
+            double[] column = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                column[i] = (Double) values[i];
+            }
+            return column;
+        }
+        if (type == Float.class) {
+            float[] column = new float[values.length];
+            for (int i = 0; i < values.length; i++) {
+                column[i] = (Float) values[i];
+            }
+            return column;
+        }
+        return values;
+    }
+
+    /**
+     * Expands the columns back into one map per row, nested by the dots of the fields like the row data
+     * unless {@link #isSuppressFieldDotNotation() suppressFieldDotNotation} is set.
+     *
+     * @return the rows
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> toRowData() {
+        List<Map<String, Object>> rows = new ArrayList<>(this.rowCount);
+        for (int i = 0; i < this.rowCount; i++) {
+            Map<String, Object> row = new HashMap<>(this.fields.size());
+            for (int c = 0; c < this.fields.size(); c++) {
+                String field = this.fields.get(c);
+                String[] keys = !this.suppressFieldDotNotation && field.indexOf('.') >= 0 ? field.split("\\.") : new String[]{field};
+                Map<String, Object> node = row;
+                for (int level = 0; level < keys.length - 1; level++) {
+                    node = (Map<String, Object>) node.computeIfAbsent(keys[level], key -> new HashMap<>());
+                }
+                node.put(keys[keys.length - 1], Array.get(this.columns.get(c), i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
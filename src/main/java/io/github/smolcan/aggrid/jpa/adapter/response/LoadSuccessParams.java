@@ -16,6 +16,11 @@ public class LoadSuccessParams {
      * @return the row data returned to the grid.
      */
     private List<Map<String, Object>> rowData;
+    /**
+     * @param columnarRowData the row data by column, set instead of {@code rowData} when the columnar response is enabled.
+     * @return the row data by column.
+     */
+    private ColumnarRowData columnarRowData;
     /**
      * @param rowCount the last row index, if known (helps infinite scroll).
      * @return the last row index, if known.
@@ -36,4 +41,9 @@ public class LoadSuccessParams {
      * @return the data for the grand total row.
      */
     private Map<String, Object> grandTotalData;
+    /**
+     * @param cursor the sort values of the last row, set when keyset pagination is enabled.
+     * @return the sort values of the last row, to be sent as the cursor of the next block.
+     */
+    private List<Object> cursor;
 }
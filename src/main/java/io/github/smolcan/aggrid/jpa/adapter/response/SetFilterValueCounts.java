@@ -0,0 +1,45 @@
+package io.github.smolcan.aggrid.jpa.adapter.response;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Values of a set filter with the number of rows having each of them. With top values requested,
+ * the rows having any other value are counted together in {@code otherCount}.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class SetFilterValueCounts {
+    /**
+     * @param values the values with their row counts.
+     * @return the values with their row counts.
+     */
+    private List<ValueCount> values;
+    /**
+     * @param otherCount the number of rows having a value that is not listed, 0 unless top values were requested.
+     * @return the number of rows having a value that is not listed.
+     */
+    private long otherCount;
+
+    @Setter
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder(toBuilder = true)
+    public static class ValueCount {
+        /**
+         * @param value the value, may be null.
+         * @return the value.
+         */
+        private Object value;
+        /**
+         * @param count the number of rows having the value.
+         * @return the number of rows having the value.
+         */
+        private long count;
+    }
+}
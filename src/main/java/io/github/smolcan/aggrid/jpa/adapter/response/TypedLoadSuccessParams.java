@@ -0,0 +1,52 @@
+package io.github.smolcan.aggrid.jpa.adapter.response;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link LoadSuccessParams} with the rows as instances of a row class instead of maps.
+ * The other properties serialize like those of {@link LoadSuccessParams}, the rows like their class: a dot notation
+ * column is a flat property ({@code productName}) rather than a nested {@code product} object, so the grid's column
+ * fields have to name the properties of the row class.
+ *
+ * @param <R> the row class
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class TypedLoadSuccessParams<R> {
+    /**
+     * @param rowData the row data returned to the grid.
+     * @return the row data returned to the grid.
+     */
+    private List<R> rowData;
+    /**
+     * @param rowCount the last row index, if known (helps infinite scroll).
+     * @return the last row index, if known.
+     */
+    private Long rowCount;
+    /**
+     * @param groupLevelInfo any extra information for the grid to associate with this load.
+     * @return the extra group-level information.
+     */
+    private Map<String, Object> groupLevelInfo;
+    /**
+     * @param pivotResultFields the pivot result fields; if provided, the grid generates secondary columns.
+     * @return the pivot result fields.
+     */
+    private List<String> pivotResultFields;
+    /**
+     * @param grandTotalData the data for the grand total row.
+     * @return the data for the grand total row.
+     */
+    private Map<String, Object> grandTotalData;
+    /**
+     * @param cursor the sort values of the last row, set when keyset pagination is enabled.
+     * @return the sort values of the last row, to be sent as the cursor of the next block.
+     */
+    private List<Object> cursor;
+}
@@ -0,0 +1,297 @@
+package io.github.smolcan.aggrid.jpa.adapter.utils;
+
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.ParameterExpression;
+import jakarta.persistence.criteria.Predicate;
+import lombok.NonNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link CriteriaBuilder} that turns the values compared against columns into {@link ParameterExpression}s
+ * and remembers what to bind them to, so that the generated SQL no longer depends on the values
+ * and both the provider's query plan cache and the database statement cache can be reused across requests.
+ * <p>
+ * The comparison methods taking a plain value ({@code equal(x, Object)}, {@code lt(x, Number)},
+ * {@code greaterThan(x, Y)}, {@code between}, {@code like}, ...) are redirected to their expression
+ * overloads with a parameter in place of the value. Values that need to be an expression up front
+ * (e.g. to apply {@code lower()} to them) go through {@link #value(CriteriaBuilder, Object)}.
+ * Everything else is delegated unchanged, so structural literals such as {@code select(cb.literal(1))}
+ * stay literals.
+ * <p>
+ * Parameters are typed by the expression the value is compared with, the value is converted to it
+ * (e.g. a {@code BigDecimal} compared with an {@code Integer} column binds an {@code Integer}), so that
+ * the provider does not infer the SQL type from the value. Numbers are converted only when nothing is lost,
+ * {@code 1.5} or a value out of range of an {@code Integer} column is bound as it is and compared exactly
+ * by the database, like a literal.
+ */
+public final class ParameterBindingCriteriaBuilder implements InvocationHandler {
+
+    private static final Set<String> VALUE_COMPARISONS = Set.of(
+            "equal", "notEqual",
+            "gt", "ge", "lt", "le",
+            "greaterThan", "greaterThanOrEqualTo", "lessThan", "lessThanOrEqualTo",
+            "between",
+            "like", "notLike"
+    );
+
+    private final CriteriaBuilder delegate;
+    private final Map<ParameterExpression<?>, Object> bindings = new LinkedHashMap<>();
+
+    private ParameterBindingCriteriaBuilder(@NonNull CriteriaBuilder delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Wraps the criteria builder so that values are bound as parameters.
+     * The returned builder implements every interface the provider's builder does, so casts to the
+     * provider's extended API keep working.
+     *
+     * @param delegate the provider's criteria builder
+     * @return parameter binding criteria builder
+     */
+    @NonNull
+    public static CriteriaBuilder wrap(@NonNull CriteriaBuilder delegate) {
+        ParameterBindingCriteriaBuilder handler = new ParameterBindingCriteriaBuilder(delegate);
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        interfaces.add(CriteriaBuilder.class);
+        collectInterfaces(delegate.getClass(), interfaces);
+        try {
+            return (CriteriaBuilder) Proxy.newProxyInstance(delegate.getClass().getClassLoader(), interfaces.toArray(Class<?>[]::new), handler);
+        } catch (IllegalArgumentException e) {
+            // provider interfaces not visible from its own class loader (e.g. split class loaders), plain JPA api only
+            return (CriteriaBuilder) Proxy.newProxyInstance(CriteriaBuilder.class.getClassLoader(), new Class<?>[]{CriteriaBuilder.class}, handler);
+        }
+    }
+
+    /**
+     * Creates an expression for the value: a parameter when the criteria builder binds values, a literal otherwise.
+     *
+     * @param cb    criteria builder
+     * @param value the value, must not be null
+     * @param <T>   value type
+     * @return      parameter or literal expression of the value
+     */
+    @NonNull
+    public static <T> Expression<T> value(@NonNull CriteriaBuilder cb, @NonNull T value) {
+        return value(cb, value, null);
+    }
+
+    /**
+     * Creates an expression for the value compared with an expression of the given type,
+     * the value converted to that type where it can be.
+     *
+     * @param cb    criteria builder
+     * @param value the value, must not be null
+     * @param type  java type of the expression the value is compared with, {@code null} for the type of the value
+     * @param <T>   value type
+     * @return      parameter or literal expression of the value
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public static <T> Expression<T> value(@NonNull CriteriaBuilder cb, @NonNull Object value, Class<?> type) {
+        ParameterBindingCriteriaBuilder handler = handlerOf(cb);
+        if (handler == null) {
+            return (Expression<T>) cb.literal(convert(value, type));
+        }
+        return (Expression<T>) handler.parameter(value, type);
+    }
+
+    /**
+     * Predicate of the expression being one of the values. When the criteria builder binds values, they are bound
+     * as parameters and the list is padded to the next power of two by repeating the last value, so that the
+     * generated SQL depends only on that bucket instead of on the number and the values of the ids.
+     *
+     * @param cb         criteria builder
+     * @param expression the expression
+     * @param values     the values
+     * @return           the in predicate
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public static Predicate in(@NonNull CriteriaBuilder cb, @NonNull Expression<?> expression, @NonNull Collection<?> values) {
+        ParameterBindingCriteriaBuilder handler = handlerOf(cb);
+        if (handler == null || values.isEmpty()) {
+            return expression.in(values);
+        }
+        List<Object> padded = new ArrayList<>(values);
+        int bucket = Integer.highestOneBit(Math.max(padded.size() - 1, 1)) << 1;
+        Object last = padded.get(padded.size() - 1);
+        while (padded.size() < bucket) {
+            padded.add(last);
+        }
+        CriteriaBuilder.In<Object> in = cb.in((Expression<Object>) expression);
+        for (Object value : padded) {
+            in.value(handler.parameter(value, expression.getJavaType()));
+        }
+        return in;
+    }
+
+    /**
+     * Binds the values of the parameters created through the criteria builder that the query uses.
+     * Bound parameters are forgotten, so that the next query of the same request only sees its own.
+     *
+     * @param cb            criteria builder the query was built with
+     * @param criteriaQuery the criteria query
+     * @param typedQuery    the query created from it
+     */
+    @SuppressWarnings("unchecked")
+    public static void bindParameters(@NonNull CriteriaBuilder cb, @NonNull CriteriaQuery<?> criteriaQuery, @NonNull TypedQuery<?> typedQuery) {
+        ParameterBindingCriteriaBuilder handler = handlerOf(cb);
+        if (handler == null || handler.bindings.isEmpty()) {
+            return;
+        }
+        Set<ParameterExpression<?>> queryParameters = criteriaQuery.getParameters();
+        Iterator<Map.Entry<ParameterExpression<?>, Object>> bindings = handler.bindings.entrySet().iterator();
+        while (bindings.hasNext()) {
+            Map.Entry<ParameterExpression<?>, Object> binding = bindings.next();
+            ParameterExpression<Object> parameter = (ParameterExpression<Object>) binding.getKey();
+            if (queryParameters.contains(parameter)) {
+                typedQuery.setParameter(parameter, binding.getValue());
+                bindings.remove();
+                continue;
+            }
+            try {
+                // not every provider reports the parameters of subqueries
+                typedQuery.setParameter(parameter, binding.getValue());
+                bindings.remove();
+            } catch (IllegalArgumentException e) {
+                // belongs to a query of the same request that is still being built
+            }
+        }
+    }
+
+    /**
+     * Values of the parameters created through the criteria builder that are not bound yet.
+     *
+     * @param cb criteria builder
+     * @return   copy of the pending bindings, empty if the criteria builder does not bind values
+     */
+    @NonNull
+    public static Map<ParameterExpression<?>, Object> pendingBindings(@NonNull CriteriaBuilder cb) {
+        ParameterBindingCriteriaBuilder handler = handlerOf(cb);
+        if (handler == null) {
+            return Map.of();
+        }
+        return new LinkedHashMap<>(handler.bindings);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return this.invokeObjectMethod(proxy, method, args);
+        }
+        Method target = method;
+        Object[] targetArgs = args;
+        if (VALUE_COMPARISONS.contains(method.getName()) && args != null && args.length >= 2) {
+            Class<?>[] parameterTypes = method.getParameterTypes().clone();
+            targetArgs = args.clone();
+            boolean replaced = false;
+            // first argument is always the compared expression; char arguments are like escapes
+            for (int i = 1; i < args.length; i++) {
+                if (args[i] != null && !(args[i] instanceof Expression) && !(args[i] instanceof Character)) {
+                    targetArgs[i] = this.parameter(args[i], ((Expression<?>) args[0]).getJavaType());
+                    parameterTypes[i] = Expression.class;
+                    replaced = true;
+                }
+            }
+            if (replaced) {
+                try {
+                    target = CriteriaBuilder.class.getMethod(method.getName(), parameterTypes);
+                } catch (NoSuchMethodException e) {
+                    // provider specific overload without an expression counterpart, leave the value as it is
+                    targetArgs = args;
+                }
+            }
+        }
+        try {
+            return target.invoke(this.delegate, targetArgs);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ParameterExpression<Object> parameter(@NonNull Object value, Class<?> expressionType) {
+        Object converted = convert(value, expressionType);
+        Class<?> type;
+        if (expressionType != null && expressionType != Object.class && Utils.boxed(expressionType).isInstance(converted)) {
+            type = Utils.boxed(expressionType);
+        } else if (converted instanceof Enum) {
+            type = ((Enum<?>) converted).getDeclaringClass();
+        } else {
+            // unknown or incompatible expression type, e.g. a function result
+            type = converted.getClass();
+        }
+        ParameterExpression<Object> parameter = (ParameterExpression<Object>) this.delegate.parameter(type);
+        this.bindings.put(parameter, converted);
+        return parameter;
+    }
+
+    private static Object convert(Object value, Class<?> type) {
+        Object converted;
+        try {
+            converted = Utils.convertJsonValue(value, type);
+        } catch (RuntimeException e) {
+            // not a value of the type, bound as it is and left to the database
+            return value;
+        }
+        if (converted != value && value instanceof Number && converted instanceof Number && !sameNumber((Number) value, (Number) converted)) {
+            // a fraction cut off or an overflow, bound as it is
+            return value;
+        }
+        return converted;
+    }
+
+    private static boolean sameNumber(Number value, Number converted) {
+        try {
+            return new BigDecimal(value.toString()).compareTo(new BigDecimal(converted.toString())) == 0;
+        } catch (NumberFormatException e) {
+            // NaN or infinity
+            return false;
+        }
+    }
+
+    private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "ParameterBinding(" + this.delegate + ")";
+        }
+    }
+
+    private static ParameterBindingCriteriaBuilder handlerOf(CriteriaBuilder cb) {
+        if (Proxy.isProxyClass(cb.getClass()) && Proxy.getInvocationHandler(cb) instanceof ParameterBindingCriteriaBuilder) {
+            return (ParameterBindingCriteriaBuilder) Proxy.getInvocationHandler(cb);
+        }
+        return null;
+    }
+
+    private static void collectInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Class<?> anInterface : current.getInterfaces()) {
+                if (interfaces.add(anInterface)) {
+                    collectInterfaces(anInterface, interfaces);
+                }
+            }
+        }
+    }
+}
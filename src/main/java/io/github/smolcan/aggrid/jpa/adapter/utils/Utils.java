@@ -2,9 +2,19 @@ package io.github.smolcan.aggrid.jpa.adapter.utils;
 
 import lombok.NonNull;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 public class Utils {
 
@@ -30,4 +40,73 @@ public class Utils {
         }
         return result;
     }
+
+    private static final Map<Class<?>, Class<?>> PRIMITIVE_WRAPPERS = Map.of(
+            boolean.class, Boolean.class,
+            byte.class, Byte.class,
+            short.class, Short.class,
+            int.class, Integer.class,
+            long.class, Long.class,
+            float.class, Float.class,
+            double.class, Double.class,
+            char.class, Character.class
+    );
+
+    /**
+     * @param type a type, may be primitive
+     * @return     the wrapper of a primitive type, the type itself otherwise
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Class<T> boxed(@NonNull Class<T> type) {
+        return (Class<T>) PRIMITIVE_WRAPPERS.getOrDefault(type, type);
+    }
+
+    /**
+     * Converts a value that went through JSON (a number, string or boolean) back to the java type of the
+     * expression it is compared with. Values of other types, or already of the target type, are returned as they are.
+     *
+     * @param value the value, may be null
+     * @param type  the target type
+     * @return      the converted value
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Object convertJsonValue(Object value, Class<?> type) {
+        if (value == null || type == null) {
+            return value;
+        }
+        Class<?> target = PRIMITIVE_WRAPPERS.getOrDefault(type, type);
+        if (target.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if (target == Long.class) return number.longValue();
+            if (target == Integer.class) return number.intValue();
+            if (target == Short.class) return number.shortValue();
+            if (target == Byte.class) return number.byteValue();
+            if (target == Double.class) return number.doubleValue();
+            if (target == Float.class) return number.floatValue();
+            if (target == BigDecimal.class) return new BigDecimal(number.toString());
+            if (target == BigInteger.class) return new BigDecimal(number.toString()).toBigInteger();
+            return value;
+        }
+        if (value instanceof String) {
+            String string = (String) value;
+            if (target == LocalDate.class) return LocalDate.parse(string);
+            if (target == LocalDateTime.class) return LocalDateTime.parse(string);
+            if (target == LocalTime.class) return LocalTime.parse(string);
+            if (target == OffsetDateTime.class) return OffsetDateTime.parse(string);
+            if (target == ZonedDateTime.class) return ZonedDateTime.parse(string);
+            if (target == Instant.class) return Instant.parse(string);
+            if (target == UUID.class) return UUID.fromString(string);
+            if (target == BigDecimal.class) return new BigDecimal(string);
+            if (target == BigInteger.class) return new BigInteger(string);
+            if (target == Long.class) return Long.valueOf(string);
+            if (target == Integer.class) return Integer.valueOf(string);
+            if (target == Double.class) return Double.valueOf(string);
+            if (target == Boolean.class) return Boolean.valueOf(string);
+            if (target.isEnum()) return Enum.valueOf((Class<? extends Enum>) target, string);
+        }
+        return value;
+    }
 }
@@ -11,6 +11,9 @@ import java.sql.DriverPropertyInfo;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
@@ -20,6 +23,8 @@ public final class CountingDriver implements Driver {
     public static final String URL_PREFIX = "jdbc:counting:";
 
     private static final AtomicLong EXECUTED_STATEMENTS = new AtomicLong();
+    // only collected while capturePreparedSql runs, so the suite does not keep every statement alive
+    private static volatile List<String> preparedSql;
 
     static {
         try {
@@ -36,6 +41,18 @@ public final class CountingDriver implements Driver {
         return EXECUTED_STATEMENTS.get() - before;
     }
 
+    /** SQL text of every statement prepared on any connection while {@code action} ran, in order. */
+    public static synchronized List<String> capturePreparedSql(Runnable action) {
+        List<String> captured = Collections.synchronizedList(new ArrayList<>());
+        preparedSql = captured;
+        try {
+            action.run();
+        } finally {
+            preparedSql = null;
+        }
+        return new ArrayList<>(captured);
+    }
+
     @Override
     public Connection connect(String url, Properties info) throws SQLException {
         if (!acceptsURL(url)) {
@@ -99,6 +116,10 @@ public final class CountingDriver implements Driver {
 
         @Override
         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            List<String> captured = preparedSql;
+            if (captured != null && method.getName().startsWith("prepare") && args != null && args[0] instanceof String) {
+                captured.add((String) args[0]);
+            }
             Object result = invokeUnwrapped(delegate, method, args);
             if (!(result instanceof Statement)) {
                 return result;
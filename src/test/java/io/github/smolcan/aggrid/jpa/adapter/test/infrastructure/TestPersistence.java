@@ -90,6 +90,14 @@ public final class TestPersistence {
         return activeDatabase() == TestDatabase.ORACLE;
     }
 
+    /**
+     * Whether the suite runs on Hibernate. Features whose expressions JPA cannot build, such as
+     * window functions, are configured through HibernateCriteriaBuilder and only tested there.
+     */
+    public static boolean usesHibernate() {
+        return activeProvider() == JpaProvider.HIBERNATE;
+    }
+
     public static EntityManagerFactory createEntityManagerFactory() {
         JpaProvider provider = activeProvider();
         TestDatabase database = activeDatabase();
@@ -0,0 +1,123 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.exceptions.InvalidRequestException;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncQueryBuilderTest extends ScenarioTestBase {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final List<EntityManager> suppliedEntityManagers = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    private QueryBuilder.Builder<Trade, Long, Void> config() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).build()
+                )
+                .grandTotalRow(true);
+    }
+
+    private QueryBuilder<Trade, Long, Void> asyncQueryBuilder() {
+        return config()
+                .entityManagerSupplier(() -> {
+                    EntityManager em = entityManagerFactory.createEntityManager();
+                    suppliedEntityManagers.add(em);
+                    return em;
+                })
+                .build();
+    }
+
+    private static ServerSideGetRowsRequest alphaRequest() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 100);
+        request.setFilterModel(Map.of("portfolio", filter("contains", "alpha")));
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+        return request;
+    }
+
+    @Test
+    void getRowsAsyncMatchesGetRows() throws Exception {
+        LoadSuccessParams result = asyncQueryBuilder().getRowsAsync(alphaRequest(), executor).get();
+
+        assertThat(tradeIds(result)).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void countAndGrandTotalAsync() throws Exception {
+        QueryBuilder<Trade, Long, Void> queryBuilder = asyncQueryBuilder();
+        CompletableFuture<Long> count = queryBuilder.countRowsAsync(alphaRequest(), executor);
+        CompletableFuture<Map<String, Object>> grandTotal = queryBuilder.getGrandTotalDataAsync(alphaRequest(), executor);
+
+        assertThat(count.get()).isEqualTo(3);
+        // 100.00 + 250.50 - 75.25
+        assertThat(((Number) grandTotal.get().get("currentValue")).doubleValue()).isEqualTo(275.25);
+    }
+
+    @Test
+    void everyCallGetsItsOwnEntityManagerAndClosesIt() throws Exception {
+        QueryBuilder<Trade, Long, Void> queryBuilder = asyncQueryBuilder();
+        queryBuilder.getRowsAsync(alphaRequest(), executor).get();
+        queryBuilder.countRowsAsync(alphaRequest(), executor).get();
+
+        assertThat(suppliedEntityManagers).hasSize(2).noneMatch(EntityManager::isOpen);
+    }
+
+    @Test
+    void concurrentCallsDoNotInterfere() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = asyncQueryBuilder();
+        List<CompletableFuture<LoadSuccessParams>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(queryBuilder.getRowsAsync(sortedByIdRequest(i % 12, 12), executor));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertThat(futures.get(i).join().getRowData()).hasSize(12 - i % 12);
+        }
+    }
+
+    @Test
+    void failureCompletesTheFutureExceptionally() {
+        ServerSideGetRowsRequest request = alphaRequest();
+        request.getRowGroupCols().add(groupCol("unknown"));
+
+        CompletableFuture<LoadSuccessParams> future = asyncQueryBuilder().getRowsAsync(request, executor);
+
+        assertThatThrownBy(future::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    void asyncCallsNeedAnEntityManagerSupplier() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+
+        assertThatThrownBy(() -> queryBuilder.getRowsAsync(alphaRequest(), executor))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.column.FieldPath;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.AgSetColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.query.cache.SetFilterValuesCache;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import io.github.smolcan.aggrid.jpa.adapter.test.infrastructure.CountingDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchedSetFilterValuesTest extends ScenarioTestBase {
+
+    private static final List<String> COLUMNS = List.of("portfolio", "submitterId", "product.name");
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final AtomicInteger submitted = new AtomicInteger();
+    private final Executor countingExecutor = task -> {
+        submitted.incrementAndGet();
+        executorService.execute(task);
+    };
+
+    @AfterEach
+    void shutdownExecutor() {
+        executorService.shutdownNow();
+    }
+
+    private QueryBuilder.Builder<Trade, Long, Void> config() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).filter(AgSetColumnFilter.forString()).build(),
+                        ColDef.builder(Trade_.submitterId).filter(AgSetColumnFilter.forNumber()).build(),
+                        ColDef.builder(FieldPath.of(Trade_.product).to(Product_.name)).filter(AgSetColumnFilter.forString()).build()
+                );
+    }
+
+    @Test
+    void valuesOfEveryColumnMatchSingleCalls() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+
+        Map<String, List<Object>> values = queryBuilder.supplySetFilterValues(COLUMNS);
+
+        assertThat(values).containsOnlyKeys(COLUMNS);
+        assertThat(values.keySet()).containsExactlyElementsOf(COLUMNS);
+        COLUMNS.forEach(column -> assertThat(values.get(column)).isEqualTo(queryBuilder.supplySetFilterValues(column)));
+    }
+
+    @Test
+    void columnsAreQueriedInParallel() {
+        QueryBuilder<Trade, Long, Void> sequential = config().build();
+        QueryBuilder<Trade, Long, Void> parallel = config().parallelQueries(entityManagerFactory, countingExecutor).build();
+
+        Map<String, List<Object>> values = parallel.supplySetFilterValues(COLUMNS);
+
+        assertThat(submitted.get()).isEqualTo(3);
+        assertThat(values).isEqualTo(sequential.supplySetFilterValues(COLUMNS));
+    }
+
+    @Test
+    void otherFiltersApplyToEveryColumn() {
+        ServerSideGetRowsRequest rowsRequest = sortedByIdRequest(0, 100);
+        Map<String, Object> portfolioFilter = new HashMap<>();
+        portfolioFilter.put("values", List.of("Alpha"));
+        rowsRequest.setFilterModel(Map.of("portfolio", portfolioFilter));
+
+        Map<String, List<Object>> values = config().build().supplySetFilterValues(COLUMNS, rowsRequest);
+
+        // the own filter of portfolio is left out, the others see trades 1, 2 and 3
+        assertThat(values.get("portfolio")).hasSize(8);
+        assertThat(values.get("submitterId")).containsExactly(101, 102, 103);
+        assertThat(values.get("product.name")).containsExactly("Gold", "Silver");
+    }
+
+    @Test
+    void cachedColumnsAreNotQueriedAgain() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().setFilterValuesCache(new SetFilterValuesCache(10, null, null)).build();
+        queryBuilder.supplySetFilterValues("portfolio");
+
+        long statements = CountingDriver.countStatements(() -> queryBuilder.supplySetFilterValues(COLUMNS));
+
+        assertThat(statements).isEqualTo(2);
+    }
+
+    @Test
+    void unknownColumnFailsBeforeAnyQuery() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+
+        long statements = CountingDriver.countStatements(() -> assertThatThrownBy(() -> queryBuilder.supplySetFilterValues(List.of("portfolio", "missing")))
+                .isInstanceOf(IllegalArgumentException.class));
+
+        assertThat(statements).isZero();
+    }
+}
@@ -0,0 +1,201 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.AgSetColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgDateColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgNumberColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.request.SortDirection;
+import io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.DealType;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Employee;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Employee_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import io.github.smolcan.aggrid.jpa.adapter.test.infrastructure.CountingDriver;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BindFilterValuesAsParametersTest extends ScenarioTestBase {
+
+    private QueryBuilder<Trade, Long, Void> tradeQueryBuilder(boolean bindAsParameters) {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).enableRowGroup(true, key -> key).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.book).filter(AgSetColumnFilter.forString()).build(),
+                        ColDef.builder(Trade_.submitterId).filter(new AgNumberColumnFilter<>()).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).filter(new AgNumberColumnFilter<>()).build(),
+                        ColDef.builder(Trade_.tradeDate).filter(AgDateColumnFilter.forLocalDate()).build(),
+                        ColDef.builder(Trade_.dealType).filter(AgSetColumnFilter.forEnum(DealType.class)).build()
+                )
+                .bindFilterValuesAsParameters(bindAsParameters)
+                .build();
+    }
+
+    private static Map<String, Object> setFilter(String... values) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("values", Arrays.asList(values));
+        return model;
+    }
+
+    private LoadSuccessParams rows(boolean bindAsParameters, Map<String, Object> filterModel) {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 100);
+        request.setFilterModel(filterModel);
+        return tradeQueryBuilder(bindAsParameters).getRows(request);
+    }
+
+    private void assertSameRowsEitherWay(Map<String, Object> filterModel) {
+        LoadSuccessParams literal = rows(false, filterModel);
+        LoadSuccessParams bound = rows(true, filterModel);
+        assertThat(tradeIds(literal)).isNotEmpty();
+        assertThat(tradeIds(bound)).containsExactlyElementsOf(tradeIds(literal));
+    }
+
+    @Test
+    void textFilterMatchesTheSameRows() {
+        assertSameRowsEitherWay(Map.of("portfolio", filter("contains", "lph")));
+        assertSameRowsEitherWay(Map.of("portfolio", filter("startsWith", "d")));
+    }
+
+    @Test
+    void numberAndDateFiltersMatchTheSameRows() {
+        assertSameRowsEitherWay(Map.of("submitterId", rangeFilter(102, 105)));
+        assertSameRowsEitherWay(Map.of("currentValue", filter("greaterThan", 0)));
+        assertSameRowsEitherWay(Map.of("tradeDate", dateFilter("greaterThan", "2024-01-01 00:00:00")));
+    }
+
+    @Test
+    void fractionsComparedWithAnIntegerColumnMatchTheSameRows() {
+        // submitterId is an Integer column, 1.5 must neither become 1 nor 2
+        assertSameRowsEitherWay(Map.of("submitterId", filter("lessThan", 102.5)));
+        assertSameRowsEitherWay(Map.of("submitterId", filter("greaterThan", 110.5)));
+        assertThat(tradeIds(rows(true, Map.of("submitterId", filter("lessThan", 102.5))))).containsExactly(1L, 2L);
+        assertThat(tradeIds(rows(true, Map.of("submitterId", filter("equals", 101.5))))).isEmpty();
+        assertThat(tradeIds(rows(false, Map.of("submitterId", filter("equals", 101.5))))).isEmpty();
+    }
+
+    @Test
+    void numbersOutOfRangeOfTheColumnMatchTheSameRows() {
+        // would overflow an Integer
+        assertSameRowsEitherWay(Map.of("submitterId", filter("lessThan", 3_000_000_000L)));
+        assertThat(tradeIds(rows(true, Map.of("submitterId", filter("lessThan", 3_000_000_000L))))).hasSize(11);
+    }
+
+    @Test
+    void setFilterMatchesTheSameRows() {
+        assertSameRowsEitherWay(Map.of("book", setFilter("b-1", "b-2")));
+        assertSameRowsEitherWay(Map.of("dealType", setFilter(DealType.BUY.name())));
+    }
+
+    @Test
+    void combinedFiltersMatchTheSameRows() {
+        assertSameRowsEitherWay(Map.of(
+                "portfolio", combined("OR", filter("equals", "Alpha"), filter("equals", "Beta")),
+                "submitterId", filter("lessThanOrEqual", 110)));
+    }
+
+    @Test
+    void groupKeysMatchTheSameRows() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 100);
+        request.getRowGroupCols().add(groupCol("portfolio"));
+        request.getGroupKeys().add("Alpha");
+
+        List<Long> literal = tradeIds(tradeQueryBuilder(false).getRows(request));
+        List<Long> bound = tradeIds(tradeQueryBuilder(true).getRows(request));
+        assertThat(bound).isNotEmpty().containsExactlyElementsOf(literal);
+    }
+
+    @Test
+    void treeDataParentKeyMatchesTheSameRows() {
+        ServerSideGetRowsRequest request = emptyRequest(0, 100);
+        request.getGroupKeys().add("1");
+        request.getSortModel().add(sortItem("employeeId", SortDirection.asc));
+
+        assertThat(columnValues(treeQueryBuilder(true).getRows(request), "employeeId"))
+                .isNotEmpty()
+                .containsExactlyElementsOf(columnValues(treeQueryBuilder(false).getRows(request), "employeeId"));
+    }
+
+    @Test
+    void generatedSqlDoesNotDependOnTheFilterValues() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = tradeQueryBuilder(true);
+        ServerSideGetRowsRequest first = sortedByIdRequest(0, 100);
+        first.setFilterModel(Map.of("portfolio", filter("contains", "lph"), "submitterId", filter("equals", 101)));
+        ServerSideGetRowsRequest second = sortedByIdRequest(0, 100);
+        second.setFilterModel(Map.of("portfolio", filter("contains", "et"), "submitterId", filter("equals", 107)));
+
+        List<String> firstSql = CountingDriver.capturePreparedSql(() -> queryBuilder.getRows(first));
+        List<String> secondSql = CountingDriver.capturePreparedSql(() -> queryBuilder.getRows(second));
+
+        assertThat(firstSql).isNotEmpty().containsExactlyElementsOf(secondSql);
+        assertThat(String.join("\n", firstSql)).doesNotContain("lph").doesNotContain("'et'");
+    }
+
+    @Test
+    void setNumberFilterIsBoundAsTheColumnType() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.submitterId).filter(AgSetColumnFilter.forNumber()).build()
+                )
+                .bindFilterValuesAsParameters(true)
+                .build();
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 100);
+        // submitterId is an Integer column, 104.5 must not match 104
+        request.setFilterModel(Map.of("submitterId", setFilter("101", "103.0", "104.5")));
+
+        assertThat(tradeIds(queryBuilder.getRows(request))).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void idsOfTwoPhaseFetchingAreBoundInBuckets() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).build()
+                )
+                .fetchIdsFirst(true)
+                .bindFilterValuesAsParameters(true)
+                .build();
+
+        List<String> threeIds = CountingDriver.capturePreparedSql(() -> queryBuilder.getRows(sortedByIdRequest(0, 3)));
+        List<String> fourOtherIds = CountingDriver.capturePreparedSql(() -> queryBuilder.getRows(sortedByIdRequest(3, 7)));
+
+        // 3 and 4 ids share the bucket of 4 parameters, the query by ids is the same statement
+        assertThat(threeIds).hasSize(2);
+        assertThat(threeIds.get(1)).isEqualTo(fourOtherIds.get(1));
+        assertThat(tradeIds(queryBuilder.getRows(sortedByIdRequest(3, 7)))).containsExactly(4L, 5L, 6L, 7L);
+    }
+
+    @Test
+    void wrappedCriteriaBuilderStillServesSetFilterValues() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = tradeQueryBuilder(true);
+        assertThat(queryBuilder.supplySetFilterValues("book"))
+                .isEqualTo(tradeQueryBuilder(false).supplySetFilterValues("book"));
+    }
+
+    private QueryBuilder<Employee, Long, Void> treeQueryBuilder(boolean bindAsParameters) {
+        return QueryBuilder.builder(Employee.class, Employee_.employeeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Employee_.employeeId).build(),
+                        ColDef.builder(Employee_.name).filter(new AgTextColumnFilter()).build()
+                )
+                .treeData(true)
+                .isServerSideGroupFieldName("isGroup")
+                .treeDataStringToParentIdTypeConverter(Long::valueOf)
+                .treeDataParentReferenceField(Employee_.manager)
+                .treeDataDataPathFieldName(Employee_.path)
+                .treeDataDataPathSeparator("/")
+                .bindFilterValuesAsParameters(bindAsParameters)
+                .build();
+    }
+}
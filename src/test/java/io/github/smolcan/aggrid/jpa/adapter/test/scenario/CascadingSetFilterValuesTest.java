@@ -0,0 +1,107 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.column.FieldPath;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.AgSetColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.query.cache.SetFilterValuesCache;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.request.SetFilterValuesRequest;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import io.github.smolcan.aggrid.jpa.adapter.test.infrastructure.CountingDriver;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CascadingSetFilterValuesTest extends ScenarioTestBase {
+
+    private QueryBuilder.Builder<Trade, Long, Void> config() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).filter(AgSetColumnFilter.forString()).build(),
+                        ColDef.builder(Trade_.book).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(FieldPath.of(Trade_.product).to(Product_.name)).filter(AgSetColumnFilter.forString()).build()
+                );
+    }
+
+    private static Map<String, Object> setFilter(String... values) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("values", List.of(values));
+        return model;
+    }
+
+    private static ServerSideGetRowsRequest filtered(Map<String, Object> filterModel) {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 100);
+        request.setFilterModel(filterModel);
+        return request;
+    }
+
+    @Test
+    void valuesComeFromRowsPassingTheOtherFilters() {
+        ServerSideGetRowsRequest request = filtered(Map.of("portfolio", setFilter("Alpha")));
+
+        // Alpha and alpha: trades 1, 2 and 3
+        assertThat(config().build().supplySetFilterValues("product.name", request)).containsExactly("Gold", "Silver");
+    }
+
+    @Test
+    void ownFilterDoesNotNarrowItsValues() {
+        ServerSideGetRowsRequest request = filtered(Map.of(
+                "portfolio", setFilter("Alpha"),
+                "book", filter("equals", "b-1")));
+
+        // books B-1 and b-1: trades 1, 6 and 12
+        assertThat(config().build().supplySetFilterValues("portfolio", request)).containsExactlyInAnyOrder("Alpha", "BETA", "Epsilon");
+    }
+
+    @Test
+    void quickFilterAndExternalFilterApply() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config()
+                .isQuickFilterPresent(true)
+                .quickFilterSearchInFields(FieldPath.of(Trade_.portfolio))
+                .isExternalFilterPresent(true)
+                .doesExternalFilterPass((cb, root, externalFilterValue) -> externalFilterValue == null
+                        ? null
+                        : cb.notEqual(root.get(Trade_.tradeId), Long.valueOf(externalFilterValue.toString())))
+                .build();
+        ServerSideGetRowsRequest request = filtered(new HashMap<>());
+        request.setQuickFilter("gamma");
+
+        // trades 7 and 8
+        assertThat(queryBuilder.supplySetFilterValues("product.name", request)).containsExactly("Platinum", "Silver");
+
+        request.setExternalFilter("8");
+        assertThat(queryBuilder.supplySetFilterValues("product.name", request)).containsExactly("Platinum");
+    }
+
+    @Test
+    void otherFiltersCombineWithSearch() {
+        SetFilterValuesRequest request = SetFilterValuesRequest.builder()
+                .field("portfolio")
+                .searchText("a")
+                .rowsRequest(filtered(Map.of("product.name", setFilter("Platinum"))))
+                .build();
+
+        // Platinum: trades 4 (Beta), 7 (Gamma) and 11 (Epsilon)
+        assertThat(config().build().supplySetFilterValues(request)).containsExactlyInAnyOrder("Beta", "Gamma");
+    }
+
+    @Test
+    void requestFilteringOnlyTheColumnItselfUsesTheCache() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().setFilterValuesCache(new SetFilterValuesCache(10, null, null)).build();
+        queryBuilder.supplySetFilterValues("portfolio");
+
+        ServerSideGetRowsRequest request = filtered(Map.of("portfolio", setFilter("Alpha")));
+        long statements = CountingDriver.countStatements(() -> assertThat(queryBuilder.supplySetFilterValues("portfolio", request)).hasSize(8));
+
+        assertThat(statements).isZero();
+    }
+}
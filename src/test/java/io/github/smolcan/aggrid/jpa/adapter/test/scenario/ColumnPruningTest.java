@@ -0,0 +1,93 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.column.FieldPath;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnPruningTest extends ScenarioTestBase {
+
+    private QueryBuilder.Builder<Trade, Long, Void> config() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).enableRowGroup(true, key -> key).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.book).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(FieldPath.of(Trade_.product).to(Product_.name)).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).build()
+                )
+                .suppressFieldDotNotation(true);
+    }
+
+    @Test
+    void selectsOnlyTheRequestedColumnsAndThePrimaryField() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 3);
+        request.setRequestedColumns(List.of("portfolio", "currentValue"));
+
+        List<Map<String, Object>> rows = config().build().getRows(request).getRowData();
+
+        assertThat(rows).hasSize(3).allSatisfy(row -> assertThat(row).containsOnlyKeys("tradeId", "portfolio", "currentValue"));
+    }
+
+    @Test
+    void allColumnsWithoutRequestedColumns() {
+        Map<String, Object> row = config().build().getRows(sortedByIdRequest(0, 1)).getRowData().get(0);
+
+        assertThat(row).containsOnlyKeys("tradeId", "portfolio", "book", "product.name", "currentValue");
+    }
+
+    @Test
+    void columnsThatAreNotColDefsAreIgnored() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 1);
+        request.setRequestedColumns(List.of("ag-Grid-SelectionColumn", "product.name"));
+
+        Map<String, Object> row = config().build().getRows(request).getRowData().get(0);
+
+        assertThat(row).containsOnlyKeys("tradeId", "product.name");
+    }
+
+    @Test
+    void filtersAndSortStillUseColumnsThatAreNotSelected() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 100);
+        request.setFilterModel(Map.of("portfolio", filter("contains", "alpha")));
+        request.setRequestedColumns(List.of("book"));
+
+        assertThat(tradeIds(config().build().getRows(request))).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void expandedGroupKeepsItsGroupColumn() {
+        ServerSideGetRowsRequest request = emptyRequest(0, 100);
+        request.setFilterModel(new HashMap<>());
+        request.getRowGroupCols().add(groupCol("portfolio"));
+        request.getGroupKeys().add("Beta");
+        request.setRequestedColumns(List.of("book"));
+
+        List<Map<String, Object>> rows = config().build().getRows(request).getRowData();
+
+        assertThat(rows).hasSize(2).allSatisfy(row -> assertThat(row).containsOnlyKeys("tradeId", "portfolio", "book"));
+    }
+
+    @Test
+    void cachedQueryIsNotReusedForOtherColumns() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().compiledQueryCacheSize(10).build();
+        ServerSideGetRowsRequest narrow = sortedByIdRequest(0, 1);
+        narrow.setRequestedColumns(List.of("book"));
+        ServerSideGetRowsRequest wide = sortedByIdRequest(0, 1);
+        wide.setRequestedColumns(List.of("book", "portfolio"));
+
+        assertThat(queryBuilder.getRows(narrow).getRowData().get(0)).containsOnlyKeys("tradeId", "book");
+        assertThat(queryBuilder.getRows(wide).getRowData().get(0)).containsOnlyKeys("tradeId", "book", "portfolio");
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.column.FieldPath;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.response.ColumnarRowData;
+import io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnarResponseTest extends ScenarioTestBase {
+
+    private QueryBuilder.Builder<Trade, Long, Void> config() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).enableRowGroup(true, key -> key).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.submitterId).build(),
+                        ColDef.builder(FieldPath.of(Trade_.product).to(Product_.name)).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).build()
+                )
+                .columnarResponse(true);
+    }
+
+    private static ServerSideGetRowsRequest alphaRequest() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 100);
+        request.setFilterModel(Map.of("portfolio", filter("contains", "alpha")));
+        return request;
+    }
+
+    @Test
+    void rowsComeAsOneArrayPerField() {
+        LoadSuccessParams result = config().build().getRows(alphaRequest());
+
+        assertThat(result.getRowData()).isNull();
+        ColumnarRowData columnar = result.getColumnarRowData();
+        assertThat(columnar.getRowCount()).isEqualTo(3);
+        assertThat(columnar.getFields()).containsExactly("tradeId", "portfolio", "submitterId", "product.name", "currentValue");
+        assertThat(columnar.getColumns().get(0)).isEqualTo(new long[]{1L, 2L, 3L});
+        assertThat(columnar.getColumns().get(1)).isEqualTo(new Object[]{"Alpha", "Alpha", "alpha"});
+        assertThat(columnar.getColumns().get(2)).isEqualTo(new int[]{101, 102, 103});
+    }
+
+    @Test
+    void columnWithNullsStaysBoxed() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(3, 6);
+
+        Object submitterIds = config().build().getRows(request).getColumnarRowData().getColumns().get(2);
+
+        // trade 5 has no submitter
+        assertThat(submitterIds).isEqualTo(new Object[]{104, null, 106});
+    }
+
+    @Test
+    void expandsToTheSameRowsAsRowData() {
+        LoadSuccessParams columnar = config().build().getRows(alphaRequest());
+        LoadSuccessParams rows = config().columnarResponse(false).build().getRows(alphaRequest());
+
+        // "product.name" is nested into a product map like in the row data
+        assertThat(columnar.getColumnarRowData().toRowData()).containsExactlyElementsOf(rows.getRowData());
+        assertThat(nestedValue(columnar.getColumnarRowData().toRowData().get(0), "product.name")).isEqualTo("Gold");
+    }
+
+    @Test
+    void expandsToFlatRowsWithoutDotNotation() {
+        LoadSuccessParams columnar = config().suppressFieldDotNotation(true).build().getRows(alphaRequest());
+        LoadSuccessParams rows = config().suppressFieldDotNotation(true).columnarResponse(false).build().getRows(alphaRequest());
+
+        assertThat(columnar.getColumnarRowData().isSuppressFieldDotNotation()).isTrue();
+        assertThat(columnar.getColumnarRowData().toRowData()).containsExactlyElementsOf(rows.getRowData());
+    }
+
+    @Test
+    void floatsArePackedAndDecimalsStayExact() {
+        assertThat(ColumnarRowData.column(new Object[]{1.5f, 2.5f})).isEqualTo(new float[]{1.5f, 2.5f});
+        assertThat(ColumnarRowData.column(new Object[]{new BigDecimal("0.10")})).isEqualTo(new Object[]{new BigDecimal("0.10")});
+    }
+
+    @Test
+    void groupRowsAreColumnarToo() {
+        ServerSideGetRowsRequest request = emptyRequest(0, 100);
+        request.setFilterModel(new HashMap<>());
+        request.getRowGroupCols().add(groupCol("portfolio"));
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+
+        ColumnarRowData columnar = config().build().getRows(request).getColumnarRowData();
+
+        assertThat(columnar.getFields()).containsExactly("portfolio", "currentValue");
+        assertThat(columnar.getRowCount()).isEqualTo(8);
+    }
+
+    @Test
+    void emptyBlockKeepsItsFields() {
+        ColumnarRowData columnar = config().build().getRows(sortedByIdRequest(20, 25)).getColumnarRowData();
+
+        assertThat(columnar.getRowCount()).isZero();
+        assertThat(columnar.getFields()).hasSize(5);
+    }
+}
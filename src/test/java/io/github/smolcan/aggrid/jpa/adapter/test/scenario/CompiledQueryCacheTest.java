@@ -0,0 +1,226 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.column.FieldPath;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgNumberColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.query.metrics.QueryMetrics;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.request.SortDirection;
+import io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompiledQueryCacheTest extends ScenarioTestBase {
+
+    private final List<QueryMetrics> recorded = new ArrayList<>();
+
+    private QueryBuilder.Builder<Trade, Long, Void> config() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).enableRowGroup(true, key -> key).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.submitterId).filter(new AgNumberColumnFilter<>()).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).build(),
+                        ColDef.builder(FieldPath.of(Trade_.product).to(Product_.name)).enablePivot(true).build()
+                )
+                .includeRowCountInLoadSuccessParams(true)
+                .queryMetricsListener(recorded::add)
+                .compiledQueryCacheSize(10);
+    }
+
+    private static ServerSideGetRowsRequest filteredRequest(int startRow, int endRow, String portfolioContains) {
+        ServerSideGetRowsRequest request = sortedByIdRequest(startRow, endRow);
+        request.setFilterModel(Map.of("portfolio", filter("contains", portfolioContains)));
+        return request;
+    }
+
+    private boolean lastCallHitCache() {
+        return recorded.get(recorded.size() - 1).isCompiledQueryCacheHit();
+    }
+
+    private void assertScrollingReusesTheQuery(QueryBuilder<Trade, Long, Void> queryBuilder) {
+        // every portfolio but Epsilon contains an "a": trades 1 to 10
+        assertThat(tradeIds(queryBuilder.getRows(filteredRequest(0, 3, "a")))).containsExactly(1L, 2L, 3L);
+        assertThat(lastCallHitCache()).isFalse();
+
+        LoadSuccessParams nextPage = queryBuilder.getRows(filteredRequest(3, 6, "a"));
+        assertThat(lastCallHitCache()).isTrue();
+        assertThat(tradeIds(nextPage)).containsExactly(4L, 5L, 6L);
+        assertThat(nextPage.getRowCount()).isEqualTo(10);
+    }
+
+    @Test
+    void scrollingReusesTheQueryAndMovesTheWindow() {
+        assertScrollingReusesTheQuery(config().build());
+    }
+
+    @Test
+    void cachedQueryRebindsItsParameters() {
+        assertScrollingReusesTheQuery(config().bindFilterValuesAsParameters(true).build());
+    }
+
+    @Test
+    void differentFilterValueBuildsItsOwnQuery() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+        queryBuilder.getRows(filteredRequest(0, 100, "alpha"));
+
+        LoadSuccessParams beta = queryBuilder.getRows(filteredRequest(0, 100, "beta"));
+        assertThat(lastCallHitCache()).isFalse();
+        assertThat(tradeIds(beta)).containsExactly(4L, 5L, 6L);
+        assertThat(beta.getRowCount()).isEqualTo(3);
+    }
+
+    @Test
+    void differentSortBuildsItsOwnQuery() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+        queryBuilder.getRows(sortedByIdRequest(0, 5));
+
+        ServerSideGetRowsRequest descending = emptyRequest(0, 5);
+        descending.getSortModel().add(sortItem("tradeId", SortDirection.desc));
+        LoadSuccessParams result = queryBuilder.getRows(descending);
+
+        assertThat(lastCallHitCache()).isFalse();
+        assertThat(tradeIds(result)).containsExactly(12L, 11L, 10L, 9L, 8L);
+    }
+
+    @Test
+    void pivotingOnColumnsIsNotCached() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().includeRowCountInLoadSuccessParams(false).build();
+        ServerSideGetRowsRequest request = emptyRequest(0, 100);
+        request.setPivotMode(true);
+        request.getRowGroupCols().add(groupCol("portfolio"));
+        request.getPivotCols().add(groupCol("product.name"));
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+
+        queryBuilder.getRows(request);
+        LoadSuccessParams second = queryBuilder.getRows(request);
+
+        assertThat(lastCallHitCache()).isFalse();
+        assertThat(second.getPivotResultFields()).isNotEmpty();
+    }
+
+    @Test
+    void groupAggFilteringIsNotCached() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).enableRowGroup(true, key -> key).build(),
+                        ColDef.builder(FieldPath.of(Trade_.product).to(Product_.name)).enableRowGroup(true, key -> key).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).filter(new AgNumberColumnFilter<>()).build()
+                )
+                .groupAggFiltering(true)
+                .queryMetricsListener(recorded::add)
+                .compiledQueryCacheSize(10)
+                .build();
+        ServerSideGetRowsRequest request = emptyRequest(0, 100);
+        request.getRowGroupCols().add(groupCol("portfolio"));
+        request.getRowGroupCols().add(groupCol("product.name"));
+        request.getGroupKeys().add("Alpha");
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+        request.setFilterModel(Map.of("currentValue", filter("greaterThan", 300)));
+
+        // Alpha sums to 350.50, its child groups pass with it
+        assertThat(queryBuilder.getRows(request).getRowData()).hasSize(2);
+        try {
+            setCurrentValueOfTrade1(BigDecimal.ZERO);
+
+            // Alpha sums to 250.50 now, neither child group nor any leaf passes on its own
+            assertThat(queryBuilder.getRows(request).getRowData()).isEmpty();
+            assertThat(lastCallHitCache()).isFalse();
+        } finally {
+            setCurrentValueOfTrade1(new BigDecimal("100.00"));
+        }
+    }
+
+    private static void setCurrentValueOfTrade1(BigDecimal currentValue) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.createQuery("update Trade t set t.currentValue = :currentValue where t.tradeId = 1")
+                    .setParameter("currentValue", currentValue)
+                    .executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void expiredQueriesAreRebuilt() throws InterruptedException {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().compiledQueryCacheTtl(Duration.ofMillis(1)).build();
+        queryBuilder.getRows(sortedByIdRequest(0, 5));
+        Thread.sleep(5);
+
+        queryBuilder.getRows(sortedByIdRequest(5, 10));
+        assertThat(lastCallHitCache()).isFalse();
+    }
+
+    @Test
+    void invalidationDropsCachedQueries() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+        queryBuilder.getRows(sortedByIdRequest(0, 5));
+        queryBuilder.invalidateCompiledQueries();
+
+        queryBuilder.getRows(sortedByIdRequest(5, 10));
+        assertThat(lastCallHitCache()).isFalse();
+    }
+
+    @Test
+    void contextKeepsQueriesOfAlwaysAppliedPredicateApart() {
+        AtomicReference<String> tenant = new AtomicReference<>("alpha");
+        QueryBuilder<Trade, Long, Void> queryBuilder = config()
+                .bindFilterValuesAsParameters(true)
+                .alwaysAppliedPredicate((cb, root) -> cb.equal(cb.lower(root.get(Trade_.portfolio)), tenant.get()))
+                .compiledQueryCacheContext(tenant::get)
+                .build();
+
+        assertThat(tradeIds(queryBuilder.getRows(sortedByIdRequest(0, 100)))).containsExactly(1L, 2L, 3L);
+
+        tenant.set("beta");
+        LoadSuccessParams beta = queryBuilder.getRows(sortedByIdRequest(0, 100));
+        assertThat(lastCallHitCache()).isFalse();
+        assertThat(tradeIds(beta)).containsExactly(4L, 5L, 6L);
+        assertThat(beta.getRowCount()).isEqualTo(3);
+
+        tenant.set("alpha");
+        LoadSuccessParams alpha = queryBuilder.getRows(sortedByIdRequest(0, 100));
+        assertThat(lastCallHitCache()).isTrue();
+        assertThat(tradeIds(alpha)).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void alwaysAppliedPredicateWithoutContextIsNotCached() {
+        AtomicReference<String> tenant = new AtomicReference<>("alpha");
+        QueryBuilder<Trade, Long, Void> queryBuilder = config()
+                .alwaysAppliedPredicate((cb, root) -> cb.equal(cb.lower(root.get(Trade_.portfolio)), tenant.get()))
+                .build();
+        queryBuilder.getRows(sortedByIdRequest(0, 100));
+
+        tenant.set("beta");
+        LoadSuccessParams beta = queryBuilder.getRows(sortedByIdRequest(0, 100));
+
+        assertThat(lastCallHitCache()).isFalse();
+        assertThat(tradeIds(beta)).containsExactly(4L, 5L, 6L);
+    }
+
+    @Test
+    void cacheSizeAndTtlMustBePositive() {
+        assertThatThrownBy(() -> config().compiledQueryCacheSize(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> config().compiledQueryCacheTtl(Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
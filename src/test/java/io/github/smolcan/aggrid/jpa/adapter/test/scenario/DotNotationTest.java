@@ -3,15 +3,22 @@ package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
 import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
 import io.github.smolcan.aggrid.jpa.adapter.column.FieldPath;
 import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.query.RowLayout;
 import io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams;
 import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product_;
 import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
 import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
 import org.junit.jupiter.api.Test;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class DotNotationTest extends ScenarioTestBase {
 
@@ -50,6 +57,19 @@ class DotNotationTest extends ScenarioTestBase {
         assertThat(((Number) nestedValue(row, "product.productId")).longValue()).isEqualTo(1L);
     }
 
+    @Test
+    void fieldCannotBeAValueAndANestedMap() {
+        assertThatThrownBy(() -> RowLayout.compile(new String[]{"product", "product.name"}, true, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'product'")
+                .hasMessageContaining("'product.name'");
+        assertThatThrownBy(() -> RowLayout.compile(new String[]{"product.name", "tradeId", "product"}, true, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'product.name'");
+        // flat keys do not nest, nothing conflicts
+        assertThat(RowLayout.compile(new String[]{"product", "product.name"}, false, 0)).isNotNull();
+    }
+
     @Test
     void suppressFieldDotNotationReturnsFlatKeys() {
         LoadSuccessParams result = dotNotationQueryBuilder(true).getRows(sortedByIdRequest(0, 1));
@@ -57,4 +77,16 @@ class DotNotationTest extends ScenarioTestBase {
         assertThat(row).containsEntry("product.name", "Gold");
         assertThat(row).doesNotContainKey("product");
     }
+
+    @Test
+    void streamedRowsAreNestedLikeRowData() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = dotNotationQueryBuilder(false);
+
+        List<Map<String, Object>> rowData = queryBuilder.getRows(sortedByIdRequest(0, 12)).getRowData();
+        try (Stream<Map<String, Object>> rows = queryBuilder.streamRows(sortedByIdRequest(0, 12))) {
+            assertThat(rows.collect(Collectors.toList())).containsExactlyElementsOf(rowData);
+        }
+        // trade 10 has no product, the nested map is still there
+        assertThat(rowData.get(9)).containsEntry("product", new HashMap<>(Collections.singletonMap("name", null)));
+    }
 }
@@ -0,0 +1,100 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.column.FieldPath;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExportTest extends ScenarioTestBase {
+
+    private QueryBuilder<Trade, Long, Void> queryBuilder() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).headerName("Trade ID").build(),
+                        ColDef.builder(Trade_.portfolio).enableRowGroup(true, key -> key).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(FieldPath.of(Trade_.product).to(Product_.name)).build(),
+                        ColDef.builder(Trade_.currentValue)
+                                .enableValue(true)
+                                .valueFormatter(value -> value == null ? "" : ((BigDecimal) value).setScale(1, RoundingMode.HALF_UP).toPlainString())
+                                .build()
+                )
+                .build();
+    }
+
+    private static ServerSideGetRowsRequest alphaRequest() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 1);
+        request.setFilterModel(Map.of("portfolio", filter("contains", "alpha")));
+        return request;
+    }
+
+    @Test
+    void csvHasHeadersAndColumnsInColDefOrder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        queryBuilder().exportCsv(alphaRequest(), out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "Trade ID,portfolio,product.name,currentValue\r\n" +
+                "1,Alpha,Gold,100.0\r\n" +
+                "2,Alpha,Silver,250.5\r\n" +
+                "3,alpha,Gold,-75.3\r\n"
+        );
+    }
+
+    @Test
+    void ndjsonWritesOneFlatObjectPerRow() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        queryBuilder().exportNdjson(alphaRequest(), out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+                "{\"tradeId\":1,\"portfolio\":\"Alpha\",\"product.name\":\"Gold\",\"currentValue\":\"100.0\"}",
+                "{\"tradeId\":2,\"portfolio\":\"Alpha\",\"product.name\":\"Silver\",\"currentValue\":\"250.5\"}",
+                "{\"tradeId\":3,\"portfolio\":\"alpha\",\"product.name\":\"Gold\",\"currentValue\":\"-75.3\"}"
+        );
+    }
+
+    @Test
+    void groupRowsAreExportedWithTheirAggregations() throws IOException {
+        ServerSideGetRowsRequest request = emptyRequest(0, 1);
+        request.setFilterModel(new HashMap<>());
+        request.getRowGroupCols().add(groupCol("portfolio"));
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        queryBuilder().exportCsv(request, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(lines[0]).isEqualTo("portfolio,currentValue");
+        // header and the 8 portfolios
+        assertThat(lines).hasSize(9).contains("Delta,1000.0");
+    }
+
+    @Test
+    void csvQuotesValuesThatNeedIt() throws IOException {
+        QueryBuilder<Trade, Long, Void> queryBuilder = QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).valueFormatter(value -> "\"" + value + "\", inc.").build()
+                )
+                .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        queryBuilder.exportCsv(sortedByIdRequest(0, 1), out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).startsWith("tradeId,portfolio\r\n1,\"\"\"Alpha\"\", inc.\"\r\n");
+    }
+}
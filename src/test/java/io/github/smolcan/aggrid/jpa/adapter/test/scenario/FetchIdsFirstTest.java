@@ -0,0 +1,115 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.column.FieldPath;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.request.SortDirection;
+import io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import io.github.smolcan.aggrid.jpa.adapter.test.infrastructure.CountingDriver;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FetchIdsFirstTest extends ScenarioTestBase {
+
+    private QueryBuilder.Builder<Trade, Long, Void> config() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).enableRowGroup(true, key -> key).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.book).build(),
+                        ColDef.builder(FieldPath.of(Trade_.product).to(Product_.name)).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).build()
+                )
+                .fetchIdsFirst(true);
+    }
+
+    private static ServerSideGetRowsRequest filteredByValue(int startRow, int endRow) {
+        ServerSideGetRowsRequest request = emptyRequest(startRow, endRow);
+        request.setFilterModel(Map.of("portfolio", filter("contains", "a")));
+        request.getSortModel().add(sortItem("currentValue", SortDirection.desc));
+        request.getSortModel().add(sortItem("tradeId", SortDirection.asc));
+        return request;
+    }
+
+    @Test
+    void rowsKeepTheOrderOfTheRowsQuery() {
+        QueryBuilder<Trade, Long, Void> twoPhase = config().build();
+        QueryBuilder<Trade, Long, Void> onePhase = config().fetchIdsFirst(false).build();
+
+        for (int startRow = 0; startRow < 12; startRow += 4) {
+            LoadSuccessParams expected = onePhase.getRows(filteredByValue(startRow, startRow + 4));
+            LoadSuccessParams actual = twoPhase.getRows(filteredByValue(startRow, startRow + 4));
+
+            assertThat(actual.getRowData()).containsExactlyElementsOf(expected.getRowData());
+        }
+    }
+
+    @Test
+    void rowsQuerySelectsOnlyTheIds() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+
+        List<String> sql = CountingDriver.capturePreparedSql(() -> queryBuilder.getRows(filteredByValue(2, 6)));
+
+        assertThat(sql).hasSize(2);
+        // the page is filtered, sorted and skipped without the product join
+        assertThat(sql.get(0).toLowerCase()).doesNotContain("join");
+        assertThat(sql.get(1).toLowerCase()).contains("join");
+    }
+
+    @Test
+    void internalIdStaysOutOfTheRows() {
+        Map<String, Object> row = config().suppressFieldDotNotation(true).build().getRows(sortedByIdRequest(0, 1)).getRowData().get(0);
+
+        assertThat(row).containsOnlyKeys("tradeId", "portfolio", "book", "product.name", "currentValue");
+    }
+
+    @Test
+    void emptyPageNeedsNoSecondQuery() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+
+        long statements = CountingDriver.countStatements(() -> assertThat(queryBuilder.getRows(sortedByIdRequest(20, 25)).getRowData()).isEmpty());
+
+        assertThat(statements).isEqualTo(1);
+    }
+
+    @Test
+    void cursorAndRowCountComeFromTheRowsQuery() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config()
+                .keysetPagination(true)
+                .includeRowCountInLoadSuccessParams(true)
+                .rowCountFromLastBlock(true)
+                .build();
+
+        LoadSuccessParams first = queryBuilder.getRows(sortedByIdRequest(0, 8));
+        assertThat(first.getCursor()).containsExactly(8L);
+
+        ServerSideGetRowsRequest next = sortedByIdRequest(8, 16);
+        next.setCursor(first.getCursor());
+        LoadSuccessParams last = queryBuilder.getRows(next);
+        assertThat(tradeIds(last)).containsExactly(9L, 10L, 11L, 12L);
+        assertThat(last.getRowCount()).isEqualTo(12);
+    }
+
+    @Test
+    void groupRowsAreFetchedInOneQuery() {
+        ServerSideGetRowsRequest request = emptyRequest(0, 100);
+        request.setFilterModel(new HashMap<>());
+        request.getRowGroupCols().add(groupCol("portfolio"));
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+
+        long statements = CountingDriver.countStatements(() -> assertThat(queryBuilder.getRows(request).getRowData()).hasSize(8));
+
+        assertThat(statements).isEqualTo(1);
+    }
+}
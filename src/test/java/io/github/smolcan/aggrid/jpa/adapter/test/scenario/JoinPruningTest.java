@@ -0,0 +1,74 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.column.FieldPath;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.request.SortDirection;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import io.github.smolcan.aggrid.jpa.adapter.test.infrastructure.CountingDriver;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JoinPruningTest extends ScenarioTestBase {
+
+    private QueryBuilder<Trade, Long, Void> queryBuilder() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(FieldPath.of(Trade_.product).to(Product_.name)).filter(new AgTextColumnFilter()).build()
+                )
+                .build();
+    }
+
+    private static String sql(Runnable action) {
+        return String.join("\n", CountingDriver.capturePreparedSql(action)).toLowerCase();
+    }
+
+    @Test
+    void countDoesNotJoinSelectedColumns() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = queryBuilder();
+
+        assertThat(sql(() -> queryBuilder.countRows(sortedByIdRequest(0, 5)))).doesNotContain("join");
+        assertThat(queryBuilder.countRows(sortedByIdRequest(0, 5))).isEqualTo(12);
+    }
+
+    @Test
+    void countJoinsWhatItFiltersOn() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 5);
+        request.setFilterModel(Map.of("product.name", filter("equals", "Gold")));
+        QueryBuilder<Trade, Long, Void> queryBuilder = queryBuilder();
+
+        assertThat(sql(() -> queryBuilder.countRows(request))).contains("join");
+        assertThat(queryBuilder.countRows(request)).isEqualTo(4);
+    }
+
+    @Test
+    void columnsThatAreNotRequestedAreNotJoined() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 5);
+        request.setRequestedColumns(List.of("portfolio"));
+
+        assertThat(sql(() -> queryBuilder().getRows(request))).doesNotContain("join");
+    }
+
+    @Test
+    void sortingOnAColumnThatIsNotRequestedStillJoinsIt() {
+        ServerSideGetRowsRequest request = emptyRequest(0, 12);
+        request.getSortModel().add(sortItem("product.name", SortDirection.asc));
+        request.getSortModel().add(sortItem("tradeId", SortDirection.asc));
+        request.setRequestedColumns(List.of("portfolio"));
+        QueryBuilder<Trade, Long, Void> queryBuilder = queryBuilder();
+
+        assertThat(sql(() -> queryBuilder.getRows(request))).contains("join");
+        // Gold: 1, 3, 6, 9, where trade 10 without a product sorts depends on the database
+        assertThat(tradeIds(queryBuilder.getRows(request))).containsSubsequence(1L, 3L, 6L, 9L, 2L);
+    }
+}
@@ -0,0 +1,375 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.exceptions.InvalidRequestException;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.query.metrics.QueryMetrics;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.request.SortDirection;
+import io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetPaginationTest extends ScenarioTestBase {
+
+    private QueryBuilder.Builder<Trade, Long, Void> config() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).enableRowGroup(true, key -> key).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).build()
+                )
+                .keysetPagination(true);
+    }
+
+    private QueryBuilder.Builder<Trade, Long, Void> withNullableColumns() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.submitterId).build(),
+                        ColDef.builder(Trade_.book).build()
+                )
+                .keysetPagination(true);
+    }
+
+    private QueryBuilder.Builder<Trade, Long, Void> byBook() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.book).enableRowGroup(true, key -> key).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).build()
+                )
+                .keysetPagination(true);
+    }
+
+    private static List<Long> pageByCursor(QueryBuilder<Trade, Long, Void> queryBuilder, String colId, SortDirection direction, int blockSize) {
+        List<Long> rows = new ArrayList<>();
+        List<Object> cursor = null;
+        for (int startRow = 0; startRow < 12; startRow += blockSize) {
+            ServerSideGetRowsRequest request = emptyRequest(startRow, startRow + blockSize);
+            request.getSortModel().add(sortItem(colId, direction));
+            request.setCursor(cursor);
+            LoadSuccessParams block = queryBuilder.getRows(request);
+            rows.addAll(tradeIds(block));
+            cursor = block.getCursor();
+        }
+        return rows;
+    }
+
+    private static ServerSideGetRowsRequest byValueDesc(int startRow, int endRow, List<Object> cursor) {
+        ServerSideGetRowsRequest request = emptyRequest(startRow, endRow);
+        request.getSortModel().add(sortItem("currentValue", SortDirection.desc));
+        request.setCursor(cursor);
+        return request;
+    }
+
+    private static ServerSideGetRowsRequest portfolioGroups(int startRow, int endRow, List<Object> cursor) {
+        ServerSideGetRowsRequest request = emptyRequest(startRow, endRow);
+        // grouping without a filterModel throws inside whereGrouping
+        request.setFilterModel(new HashMap<>());
+        request.getRowGroupCols().add(groupCol("portfolio"));
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+        request.setCursor(cursor);
+        return request;
+    }
+
+    private static List<Object> pageGroupsByCursor(QueryBuilder<Trade, Long, Void> queryBuilder, String colId, SortDirection direction, int blockSize) {
+        List<Object> groups = new ArrayList<>();
+        List<Object> cursor = null;
+        for (int startRow = 0; startRow < 12; startRow += blockSize) {
+            ServerSideGetRowsRequest request = bookGroups(startRow, startRow + blockSize, cursor);
+            request.getSortModel().add(sortItem(colId, direction));
+            LoadSuccessParams block = queryBuilder.getRows(request);
+            groups.addAll(columnValues(block, "book"));
+            cursor = block.getCursor();
+        }
+        return groups;
+    }
+
+    private static ServerSideGetRowsRequest bookGroups(int startRow, int endRow, List<Object> cursor) {
+        ServerSideGetRowsRequest request = emptyRequest(startRow, endRow);
+        request.setFilterModel(new HashMap<>());
+        request.getRowGroupCols().add(groupCol("book"));
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+        request.setCursor(cursor);
+        return request;
+    }
+
+    // ---------------------------------------------------------------- flat grid
+
+    @Test
+    void blockReturnsTheSortValuesOfItsLastRow() {
+        LoadSuccessParams first = config().build().getRows(byValueDesc(0, 6, null));
+
+        // 999.99, 500.00, 320.10, 250.50, 150.00, 100.00 (1 before 11 by id)
+        assertThat(tradeIds(first)).containsExactly(10L, 5L, 6L, 2L, 9L, 1L);
+        assertThat(first.getCursor()).hasSize(2);
+        assertThat(((BigDecimal) first.getCursor().get(0))).isEqualByComparingTo("100.00");
+        assertThat(((Number) first.getCursor().get(1)).longValue()).isEqualTo(1L);
+    }
+
+    @Test
+    void nextBlockSeeksPastTheCursorAndBreaksTiesByPrimaryField() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+        LoadSuccessParams first = queryBuilder.getRows(byValueDesc(0, 6, null));
+
+        LoadSuccessParams second = queryBuilder.getRows(byValueDesc(6, 12, first.getCursor()));
+
+        // 11 shares 100.00 with 1, the last row of the previous block
+        assertThat(tradeIds(second)).containsExactly(11L, 8L, 12L, 4L, 7L, 3L);
+    }
+
+    @Test
+    void cursorSurvivesJsonTypes() {
+        // what the grid sends back after the cursor went through JSON
+        LoadSuccessParams second = config().build().getRows(byValueDesc(6, 12, List.of(100.0, 1)));
+
+        assertThat(tradeIds(second)).containsExactly(11L, 8L, 12L, 4L, 7L, 3L);
+    }
+
+    @Test
+    void cursorDecidesWhereTheBlockStarts() {
+        // the seek replaces the offset, startRow no longer skips rows
+        LoadSuccessParams block = config().build().getRows(byValueDesc(1, 4, List.of(320.10, 6)));
+
+        assertThat(tradeIds(block)).containsExactly(2L, 9L, 1L);
+    }
+
+    @Test
+    void pagingThroughByCursorMatchesPagingByOffset() {
+        QueryBuilder<Trade, Long, Void> keyset = config().build();
+        QueryBuilder<Trade, Long, Void> offset = config().keysetPagination(false).build();
+
+        List<Long> byCursor = new ArrayList<>();
+        List<Long> byOffset = new ArrayList<>();
+        List<Object> cursor = null;
+        for (int startRow = 0; startRow < 12; startRow += 5) {
+            ServerSideGetRowsRequest request = sortedByIdRequest(startRow, startRow + 5);
+            request.getSortModel().add(0, sortItem("portfolio", SortDirection.asc));
+            request.setCursor(cursor);
+            LoadSuccessParams block = keyset.getRows(request);
+            byCursor.addAll(tradeIds(block));
+            cursor = block.getCursor();
+
+            request.setCursor(null);
+            byOffset.addAll(tradeIds(offset.getRows(request)));
+        }
+
+        assertThat(byCursor).hasSize(12).containsExactlyElementsOf(byOffset);
+    }
+
+    @Test
+    void keysetValuesStayOutOfTheRows() {
+        LoadSuccessParams result = config().build().getRows(byValueDesc(0, 3, null));
+
+        assertThat(result.getRowData()).allSatisfy(row -> assertThat(row).containsOnlyKeys("tradeId", "portfolio", "currentValue"));
+    }
+
+    @Test
+    void nullSortValuesComeLastAscending() {
+        List<Long> rows = pageByCursor(withNullableColumns().build(), "submitterId", SortDirection.asc, 4);
+
+        // trade 5 has no submitter
+        assertThat(rows).containsExactly(1L, 2L, 3L, 4L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 5L);
+    }
+
+    @Test
+    void nullSortValuesComeFirstDescending() {
+        List<Long> rows = pageByCursor(withNullableColumns().build(), "submitterId", SortDirection.desc, 4);
+
+        assertThat(rows).containsExactly(5L, 12L, 11L, 10L, 9L, 8L, 7L, 6L, 4L, 3L, 2L, 1L);
+    }
+
+    @Test
+    void cursorWithNullSeeksPastTheNulls() {
+        ServerSideGetRowsRequest request = emptyRequest(1, 12);
+        request.getSortModel().add(sortItem("submitterId", SortDirection.desc));
+        request.setCursor(Arrays.asList(null, 5));
+
+        assertThat(tradeIds(withNullableColumns().build().getRows(request))).containsExactly(12L, 11L, 10L, 9L, 8L, 7L, 6L, 4L, 3L, 2L, 1L);
+    }
+
+    @Test
+    void cursorOfTheLastNullEndsTheRows() {
+        ServerSideGetRowsRequest request = emptyRequest(11, 12);
+        request.getSortModel().add(sortItem("submitterId", SortDirection.asc));
+        request.setCursor(Arrays.asList(null, 5));
+
+        assertThat(tradeIds(withNullableColumns().build().getRows(request))).isEmpty();
+    }
+
+    @Test
+    void rowsSharingANullSortValueArePagedByPrimaryField() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = withNullableColumns().build();
+        for (SortDirection direction : SortDirection.values()) {
+            ServerSideGetRowsRequest all = emptyRequest(0, 12);
+            all.getSortModel().add(sortItem("book", direction));
+            List<Long> inOneBlock = tradeIds(queryBuilder.getRows(all));
+
+            // trades 3 and 8 have no book, a block ends between them
+            assertThat(pageByCursor(queryBuilder, "book", direction, 1)).doesNotHaveDuplicates().containsExactlyElementsOf(inOneBlock);
+            assertThat(pageByCursor(queryBuilder, "book", direction, 5)).containsExactlyElementsOf(inOneBlock);
+        }
+    }
+
+    @Test
+    void cachedQuerySeeksPastEveryCursor() {
+        List<QueryMetrics> recorded = new ArrayList<>();
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().compiledQueryCacheSize(10).queryMetricsListener(recorded::add).build();
+
+        List<Long> rows = new ArrayList<>();
+        List<Object> cursor = null;
+        for (int startRow = 0; startRow < 12; startRow += 4) {
+            LoadSuccessParams block = queryBuilder.getRows(byValueDesc(startRow, startRow + 4, cursor));
+            rows.addAll(tradeIds(block));
+            cursor = block.getCursor();
+        }
+
+        // the first seek builds the query, the next one only binds another cursor
+        assertThat(recorded).extracting(QueryMetrics::isCompiledQueryCacheHit).containsExactly(false, false, true);
+        assertThat(rows).containsExactly(10L, 5L, 6L, 2L, 9L, 1L, 11L, 8L, 12L, 4L, 7L, 3L);
+    }
+
+    @Test
+    void cursorOfAnotherOrderIsRejected() {
+        ServerSideGetRowsRequest request = byValueDesc(6, 12, List.of(100.0, 1, "Alpha"));
+
+        assertThatThrownBy(() -> config().build().getRows(request))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("cursor");
+    }
+
+    @Test
+    void rowCountOfTheLastBlockAfterASeek() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config()
+                .includeRowCountInLoadSuccessParams(true)
+                .rowCountFromLastBlock(true)
+                .build();
+
+        LoadSuccessParams last = queryBuilder.getRows(byValueDesc(6, 12, List.of(100.0, 1)));
+
+        assertThat(last.getRowCount()).isEqualTo(12);
+    }
+
+    @Test
+    void filtersStillApplyAfterTheCursor() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(1, 3);
+        request.setFilterModel(Map.of("portfolio", filter("contains", "a")));
+        request.setCursor(List.of(2));
+
+        // every portfolio but Epsilon contains an "a"
+        assertThat(tradeIds(config().build().getRows(request))).containsExactly(3L, 4L);
+    }
+
+    // ---------------------------------------------------------------- group rows
+
+    @Test
+    void groupsArePagedByTheirGroupKey() {
+        QueryBuilder<Trade, Long, Void> keyset = config().build();
+        QueryBuilder<Trade, Long, Void> offset = config().keysetPagination(false).build();
+
+        List<Object> byCursor = new ArrayList<>();
+        List<Object> byOffset = new ArrayList<>();
+        List<Object> cursor = null;
+        for (int startRow = 0; startRow < 8; startRow += 3) {
+            ServerSideGetRowsRequest request = portfolioGroups(startRow, startRow + 3, cursor);
+            request.getSortModel().add(sortItem("portfolio", SortDirection.asc));
+            LoadSuccessParams block = keyset.getRows(request);
+            byCursor.addAll(columnValues(block, "portfolio"));
+            cursor = block.getCursor();
+
+            request.setCursor(null);
+            byOffset.addAll(columnValues(offset.getRows(request), "portfolio"));
+        }
+
+        assertThat(byCursor).hasSize(8).doesNotHaveDuplicates().containsExactlyElementsOf(byOffset);
+    }
+
+    @Test
+    void groupCursorCarriesTheAggregationAndTheGroupKey() {
+        ServerSideGetRowsRequest request = portfolioGroups(0, 3, null);
+        request.getSortModel().add(sortItem("currentValue", SortDirection.desc));
+
+        LoadSuccessParams first = config().build().getRows(request);
+
+        // sums: Delta 999.99, Beta 500.00, Alpha 350.50
+        assertThat(columnValues(first, "portfolio")).containsExactly("Delta", "Beta", "Alpha");
+        assertThat(first.getCursor()).hasSize(2);
+        assertThat(((Number) first.getCursor().get(0)).doubleValue()).isEqualTo(350.50);
+        assertThat(first.getCursor().get(1)).isEqualTo("Alpha");
+    }
+
+    @Test
+    void groupsOrderedByAnAggregationSeekInHaving() {
+        ServerSideGetRowsRequest request = portfolioGroups(3, 6, List.of(350.50, "Alpha"));
+        request.getSortModel().add(sortItem("currentValue", SortDirection.desc));
+
+        LoadSuccessParams next = config().build().getRows(request);
+
+        // sums: BETA 320.10, delta 150.00, Epsilon 142.42
+        assertThat(columnValues(next, "portfolio")).containsExactly("BETA", "delta", "Epsilon");
+    }
+
+    @Test
+    void nullGroupIsPagedLikeAnyOtherGroup() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = byBook().build();
+        for (SortDirection direction : SortDirection.values()) {
+            ServerSideGetRowsRequest all = bookGroups(0, 12, null);
+            all.getSortModel().add(sortItem("book", direction));
+            List<Object> inOneBlock = columnValues(queryBuilder.getRows(all), "book");
+
+            // trades 3 and 8 have no book
+            assertThat(inOneBlock).containsNull();
+            assertThat(pageGroupsByCursor(queryBuilder, "book", direction, 2)).doesNotHaveDuplicates().containsExactlyElementsOf(inOneBlock);
+        }
+    }
+
+    @Test
+    void nullGroupIsPagedWhenOrderedByAnAggregation() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = byBook().build();
+        for (SortDirection direction : SortDirection.values()) {
+            ServerSideGetRowsRequest all = bookGroups(0, 12, null);
+            all.getSortModel().add(sortItem("currentValue", direction));
+            List<Object> inOneBlock = columnValues(queryBuilder.getRows(all), "book");
+
+            // the null group (-75.25 + 75.25) ties with the "" group (0.00), the group key breaks the tie in HAVING
+            assertThat(inOneBlock).containsNull();
+            assertThat(pageGroupsByCursor(queryBuilder, "currentValue", direction, 1)).doesNotHaveDuplicates().containsExactlyElementsOf(inOneBlock);
+        }
+    }
+
+    @Test
+    void groupCursorWithANullGroupKeySeeksPastIt() {
+        ServerSideGetRowsRequest request = bookGroups(1, 12, Arrays.asList((Object) null));
+        request.getSortModel().add(sortItem("book", SortDirection.desc));
+
+        LoadSuccessParams block = byBook().build().getRows(request);
+
+        // the null group comes first descending, every other group follows it
+        assertThat(columnValues(block, "book")).isNotEmpty().doesNotContainNull();
+    }
+
+    @Test
+    void leafRowsOfAnExpandedGroupArePagedByPrimaryField() {
+        ServerSideGetRowsRequest request = portfolioGroups(1, 3, List.of(4L));
+        request.getGroupKeys().add("Beta");
+        request.getSortModel().add(sortItem("tradeId", SortDirection.asc));
+
+        LoadSuccessParams block = config().build().getRows(request);
+
+        assertThat(tradeIds(block)).containsExactly(5L);
+        assertThat(block.getCursor()).containsExactly(5L);
+    }
+}
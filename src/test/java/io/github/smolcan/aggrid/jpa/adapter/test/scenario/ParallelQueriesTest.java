@@ -0,0 +1,150 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.exceptions.StatementBudgetExceededException;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.query.metrics.QueryMetrics;
+import io.github.smolcan.aggrid.jpa.adapter.query.metrics.QueryPhase;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelQueriesTest extends ScenarioTestBase {
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final AtomicInteger submitted = new AtomicInteger();
+    private final Executor countingExecutor = task -> {
+        submitted.incrementAndGet();
+        executorService.execute(task);
+    };
+    private final List<QueryMetrics> recorded = new ArrayList<>();
+
+    @AfterEach
+    void shutdownExecutor() {
+        executorService.shutdownNow();
+    }
+
+    private QueryBuilder.Builder<Trade, Long, Void> config() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).build()
+                )
+                .grandTotalRow(true)
+                .includeRowCountInLoadSuccessParams(true)
+                .queryMetricsListener(recorded::add);
+    }
+
+    private QueryBuilder<Trade, Long, Void> parallel() {
+        return config().parallelQueries(entityManagerFactory, countingExecutor).build();
+    }
+
+    private static ServerSideGetRowsRequest request() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 2);
+        request.setFilterModel(Map.of("portfolio", filter("contains", "alpha")));
+        request.setNeedsGrandTotal(true);
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+        return request;
+    }
+
+    @Test
+    void resultMatchesSequentialExecution() {
+        LoadSuccessParams sequential = config().build().getRows(request());
+        LoadSuccessParams parallel = parallel().getRows(request());
+
+        assertThat(tradeIds(parallel)).containsExactlyElementsOf(tradeIds(sequential));
+        assertThat(parallel.getRowCount()).isEqualTo(sequential.getRowCount()).isEqualTo(3);
+        assertThat(((Number) parallel.getGrandTotalData().get("currentValue")).doubleValue())
+                .isEqualTo(((Number) sequential.getGrandTotalData().get("currentValue")).doubleValue());
+    }
+
+    @Test
+    void grandTotalAndCountRunOnTheExecutor() {
+        parallel().getRows(request());
+
+        assertThat(submitted.get()).isEqualTo(2);
+    }
+
+    @Test
+    void onlyRequestedQueriesRunOnTheExecutor() {
+        ServerSideGetRowsRequest request = request();
+        request.setNeedsGrandTotal(false);
+
+        parallel().getRows(request);
+
+        assertThat(submitted.get()).isEqualTo(1);
+    }
+
+    @Test
+    void countThatTheFetchMayMakeUnnecessaryIsNotStartedUpFront() {
+        config().rowCountFromLastBlock(true).parallelQueries(entityManagerFactory, countingExecutor).build()
+                .getRows(request());
+
+        assertThat(submitted.get()).isEqualTo(1);
+    }
+
+    @Test
+    void parallelStatementsCountTowardsTheRequest() {
+        parallel().getRows(request());
+
+        QueryMetrics metrics = recorded.get(0);
+        assertThat(metrics.getStatementCount()).isEqualTo(3);
+        assertThat(metrics.getPhaseNanos()).containsKeys(QueryPhase.GRAND_TOTAL, QueryPhase.COUNT_ROWS);
+    }
+
+    @Test
+    void failedPageWaitsForTheQueriesBesideIt() {
+        Thread caller = Thread.currentThread();
+        AtomicInteger finished = new AtomicInteger();
+        QueryBuilder<Trade, Long, Void> queryBuilder = config()
+                // fails only the page query, the grand total and the count run slowly on the executor
+                .alwaysAppliedPredicate((cb, root) -> {
+                    if (Thread.currentThread() == caller) {
+                        throw new IllegalStateException("page failed");
+                    }
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finished.incrementAndGet();
+                    return cb.conjunction();
+                })
+                .parallelQueries(entityManagerFactory, countingExecutor)
+                .build();
+
+        assertThatThrownBy(() -> queryBuilder.getRows(request()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("page failed");
+        // nothing of the failed call keeps running after it
+        assertThat(submitted.get()).isEqualTo(2);
+        assertThat(finished.get()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void budgetExceededInAParallelQueryIsRethrownAsIs() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config()
+                .maxStatementsPerRequest(2)
+                .parallelQueries(entityManagerFactory, countingExecutor)
+                .build();
+
+        assertThatThrownBy(() -> queryBuilder.getRows(request()))
+                .isInstanceOf(StatementBudgetExceededException.class);
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.query.metrics.GridMode;
+import io.github.smolcan.aggrid.jpa.adapter.query.metrics.QueryMetrics;
+import io.github.smolcan.aggrid.jpa.adapter.query.metrics.QueryPhase;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryMetricsTest extends ScenarioTestBase {
+
+    private final List<QueryMetrics> recorded = new ArrayList<>();
+
+    private QueryBuilder.Builder<Trade, Long, Void> config() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).enableRowGroup(true, key -> key).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).build()
+                )
+                .queryMetricsListener(recorded::add);
+    }
+
+    @Test
+    void listenerIsCalledOncePerGetRows() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+        queryBuilder.getRows(sortedByIdRequest(0, 5));
+        queryBuilder.getRows(sortedByIdRequest(5, 10));
+
+        assertThat(recorded).hasSize(2);
+    }
+
+    @Test
+    void basicRequestRecordsModeRowCountAndQueryPhases() {
+        config().build().getRows(sortedByIdRequest(0, 5));
+
+        QueryMetrics metrics = recorded.get(0);
+        assertThat(metrics.getGridMode()).isEqualTo(GridMode.BASIC);
+        assertThat(metrics.getRowCount()).isEqualTo(5);
+        assertThat(metrics.getPhaseNanos()).containsOnlyKeys(
+                QueryPhase.VALIDATE_REQUEST, QueryPhase.SELECT, QueryPhase.WHERE, QueryPhase.GROUP_BY,
+                QueryPhase.HAVING, QueryPhase.ORDER_BY, QueryPhase.LIMIT_OFFSET, QueryPhase.APPLY,
+                QueryPhase.TUPLE_TO_MAP);
+        assertThat(metrics.getNanos(QueryPhase.APPLY)).isPositive();
+        assertThat(metrics.getNanos(QueryPhase.COUNT_ROWS)).isZero();
+        assertThat(metrics.getTotalNanos()).isGreaterThanOrEqualTo(metrics.getNanos(QueryPhase.APPLY));
+    }
+
+    @Test
+    void groupedRequestReportsGroupingMode() {
+        ServerSideGetRowsRequest request = emptyRequest(0, 100);
+        request.setFilterModel(new HashMap<>());
+        request.getRowGroupCols().add(groupCol("portfolio"));
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+
+        config().build().getRows(request);
+
+        assertThat(recorded.get(0).getGridMode()).isEqualTo(GridMode.GROUPING);
+        // Alpha, alpha, Beta, BETA, Gamma, delta, Delta, Epsilon
+        assertThat(recorded.get(0).getRowCount()).isEqualTo(8);
+    }
+
+    @Test
+    void optionalPhasesAreRecordedWhenTheyRun() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 5);
+        request.setNeedsGrandTotal(true);
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+
+        config().grandTotalRow(true).includeRowCountInLoadSuccessParams(true).build().getRows(request);
+
+        assertThat(recorded.get(0).getPhaseNanos()).containsKeys(QueryPhase.GRAND_TOTAL, QueryPhase.COUNT_ROWS);
+    }
+}
@@ -8,6 +8,8 @@ import io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams;
 import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
 import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
 import io.github.smolcan.aggrid.jpa.adapter.test.infrastructure.CountingDriver;
+import io.github.smolcan.aggrid.jpa.adapter.test.infrastructure.TestPersistence;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
@@ -15,6 +17,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class RowCountInResponseTest extends ScenarioTestBase {
 
@@ -171,4 +174,113 @@ class RowCountInResponseTest extends ScenarioTestBase {
         assertThat(result.getRowData()).hasSize(2);
         assertThat(result.getRowCount()).isEqualTo(5);
     }
+
+    // ---------------------------------------------------------------- row count from the last block
+
+    private QueryBuilder<Trade, Long, Void> withRowCountFromLastBlock() {
+        return config().includeRowCountInLoadSuccessParams(true).rowCountFromLastBlock(true).build();
+    }
+
+    @Test
+    void lastBlockTakesTheRowCountFromTheFetch() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = withRowCountFromLastBlock();
+        LoadSuccessParams[] result = new LoadSuccessParams[1];
+
+        long statements = CountingDriver.countStatements(() -> result[0] = queryBuilder.getRows(sortedByIdRequest(10, 20)));
+
+        assertThat(statements).isEqualTo(1);
+        assertThat(tradeIds(result[0])).containsExactly(11L, 12L);
+        assertThat(result[0].getRowCount()).isEqualTo(12);
+    }
+
+    @Test
+    void fullBlockStillRunsTheCountAndDropsTheExtraRow() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = withRowCountFromLastBlock();
+        LoadSuccessParams[] result = new LoadSuccessParams[1];
+
+        long statements = CountingDriver.countStatements(() -> result[0] = queryBuilder.getRows(sortedByIdRequest(0, 5)));
+
+        assertThat(statements).isEqualTo(2);
+        assertThat(tradeIds(result[0])).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(result[0].getRowCount()).isEqualTo(12);
+    }
+
+    @Test
+    void blockEndingExactlyAtTheLastRowIsNotMistakenForTheLastBlock() {
+        LoadSuccessParams result = withRowCountFromLastBlock().getRows(sortedByIdRequest(6, 12));
+
+        assertThat(result.getRowData()).hasSize(6);
+        assertThat(result.getRowCount()).isEqualTo(12);
+    }
+
+    @Test
+    void emptyBlockBeyondTheDataFallsBackToCounting() {
+        LoadSuccessParams result = withRowCountFromLastBlock().getRows(sortedByIdRequest(20, 25));
+
+        assertThat(result.getRowData()).isEmpty();
+        assertThat(result.getRowCount()).isEqualTo(12);
+    }
+
+    @Test
+    void groupLevelTakesTheRowCountFromTheFetch() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = withRowCountFromLastBlock();
+        LoadSuccessParams[] result = new LoadSuccessParams[1];
+
+        long statements = CountingDriver.countStatements(() -> result[0] = queryBuilder.getRows(groupedRequest("portfolio")));
+
+        // no countDistinct subquery for a level that fits into one block
+        assertThat(statements).isEqualTo(1);
+        assertThat(result[0].getRowCount()).isEqualTo(8);
+    }
+
+    // ---------------------------------------------------------------- window function row count
+
+    private QueryBuilder<Trade, Long, Void> withWindowRowCount() {
+        assumeTrue(TestPersistence.usesHibernate(), "window functions are built through HibernateCriteriaBuilder");
+        return config()
+                .includeRowCountInLoadSuccessParams(true)
+                .rowCountWindowFunction(cb -> {
+                    HibernateCriteriaBuilder hcb = (HibernateCriteriaBuilder) cb;
+                    return hcb.count(hcb.literal(1), hcb.createWindow());
+                })
+                .build();
+    }
+
+    @Test
+    void windowRowCountComesWithThePageInOneStatement() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = withWindowRowCount();
+        LoadSuccessParams[] result = new LoadSuccessParams[1];
+
+        long statements = CountingDriver.countStatements(() -> result[0] = queryBuilder.getRows(sortedByIdRequest(0, 5)));
+
+        assertThat(statements).isEqualTo(1);
+        assertThat(tradeIds(result[0])).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(result[0].getRowCount()).isEqualTo(12);
+        // the count column is not part of the row
+        assertThat(result[0].getRowData().get(0)).containsOnlyKeys("tradeId", "portfolio", "book", "currentValue");
+    }
+
+    @Test
+    void windowRowCountRespectsFilters() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 2);
+        request.setFilterModel(Map.of("portfolio", filter("contains", "alpha")));
+
+        assertThat(withWindowRowCount().getRows(request).getRowCount()).isEqualTo(3);
+    }
+
+    @Test
+    void windowRowCountCountsGroups() {
+        LoadSuccessParams result = withWindowRowCount().getRows(groupedRequest("portfolio"));
+
+        assertThat(result.getRowData()).hasSize(8);
+        assertThat(result.getRowCount()).isEqualTo(8);
+    }
+
+    @Test
+    void emptyBlockBeyondTheDataStillGetsTheWindowlessCount() {
+        LoadSuccessParams result = withWindowRowCount().getRows(sortedByIdRequest(20, 25));
+
+        assertThat(result.getRowData()).isEmpty();
+        assertThat(result.getRowCount()).isEqualTo(12);
+    }
 }
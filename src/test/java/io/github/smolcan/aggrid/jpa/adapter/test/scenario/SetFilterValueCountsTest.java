@@ -0,0 +1,110 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.column.FieldPath;
+import io.github.smolcan.aggrid.jpa.adapter.exceptions.InvalidRequestException;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.AgSetColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.request.SetFilterValuesRequest;
+import io.github.smolcan.aggrid.jpa.adapter.response.SetFilterValueCounts;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import io.github.smolcan.aggrid.jpa.adapter.test.infrastructure.CountingDriver;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SetFilterValueCountsTest extends ScenarioTestBase {
+
+    private QueryBuilder<Trade, Long, Void> queryBuilder() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).filter(AgSetColumnFilter.forString()).build(),
+                        ColDef.builder(FieldPath.of(Trade_.product).to(Product_.name)).filter(AgSetColumnFilter.forString()).build()
+                )
+                .build();
+    }
+
+    private static SetFilterValuesRequest.SetFilterValuesRequestBuilder products() {
+        return SetFilterValuesRequest.builder().field("product.name");
+    }
+
+    private static Map<Object, Long> counts(SetFilterValueCounts result) {
+        // null keys allowed
+        Map<Object, Long> counts = new HashMap<>();
+        result.getValues().forEach(valueCount -> counts.put(valueCount.getValue(), valueCount.getCount()));
+        return counts;
+    }
+
+    @Test
+    void everyValueIsCountedInOneQuery() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = queryBuilder();
+        AtomicReference<SetFilterValueCounts> result = new AtomicReference<>();
+
+        long statements = CountingDriver.countStatements(() -> result.set(queryBuilder.supplySetFilterValuesWithCounts(products().build())));
+
+        assertThat(statements).isEqualTo(1);
+        // trade 10 has no product
+        Map<Object, Long> expected = new HashMap<>(Map.of("Gold", 4L, "Silver", 4L, "Platinum", 3L));
+        expected.put(null, 1L);
+        assertThat(counts(result.get())).isEqualTo(expected);
+        assertThat(result.get().getOtherCount()).isZero();
+    }
+
+    @Test
+    void topValuesAndTheOtherBucket() {
+        SetFilterValueCounts result = queryBuilder().supplySetFilterValuesWithCounts(products().top(2).build());
+
+        // Gold and Silver tie, the smaller value goes first
+        assertThat(result.getValues()).extracting(SetFilterValueCounts.ValueCount::getValue).containsExactly("Gold", "Silver");
+        // Platinum 3, no product 1
+        assertThat(result.getOtherCount()).isEqualTo(4);
+    }
+
+    @Test
+    void noOtherBucketQueryWhenAllValuesFitTheTop() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = queryBuilder();
+        AtomicReference<SetFilterValueCounts> result = new AtomicReference<>();
+
+        long statements = CountingDriver.countStatements(() -> result.set(queryBuilder.supplySetFilterValuesWithCounts(products().top(5).build())));
+
+        assertThat(statements).isEqualTo(1);
+        assertThat(result.get().getValues()).hasSize(4);
+        assertThat(result.get().getValues().get(0).getCount()).isEqualTo(4);
+        assertThat(result.get().getOtherCount()).isZero();
+    }
+
+    @Test
+    void countsRespectTheOtherFiltersAndSearch() {
+        ServerSideGetRowsRequest rowsRequest = sortedByIdRequest(0, 100);
+        Map<String, Object> portfolioFilter = new HashMap<>();
+        portfolioFilter.put("values", List.of("Alpha"));
+        rowsRequest.setFilterModel(Map.of("portfolio", portfolioFilter));
+
+        SetFilterValueCounts result = queryBuilder().supplySetFilterValuesWithCounts(products().rowsRequest(rowsRequest).build());
+        // trades 1, 2 and 3
+        assertThat(counts(result)).isEqualTo(Map.of("Gold", 2L, "Silver", 1L));
+
+        SetFilterValueCounts searched = queryBuilder().supplySetFilterValuesWithCounts(products().searchText("L").top(1).build());
+        // Gold 4, Silver 4, Platinum 3 contain "l"
+        assertThat(counts(searched)).isEqualTo(Map.of("Gold", 4L));
+        assertThat(searched.getOtherCount()).isEqualTo(7);
+    }
+
+    @Test
+    void topCannotBePaged() {
+        assertThatThrownBy(() -> queryBuilder().supplySetFilterValuesWithCounts(products().top(2).limit(1).build()))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> queryBuilder().supplySetFilterValuesWithCounts(products().top(-1).build()))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+}
@@ -0,0 +1,168 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.AgSetColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.query.cache.SetFilterValuesCache;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import io.github.smolcan.aggrid.jpa.adapter.test.infrastructure.CountingDriver;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SetFilterValuesCacheTest extends ScenarioTestBase {
+
+    private QueryBuilder.Builder<Trade, Long, Void> config(SetFilterValuesCache cache) {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).filter(AgSetColumnFilter.forString()).build(),
+                        ColDef.builder(Trade_.submitterId).filter(AgSetColumnFilter.forNumber()).build()
+                )
+                .setFilterValuesCache(cache);
+    }
+
+    @Test
+    void secondLookupRunsNoQuery() {
+        SetFilterValuesCache cache = new SetFilterValuesCache(10, null, null);
+        QueryBuilder<Trade, Long, Void> queryBuilder = config(cache).build();
+
+        List<Object> first = queryBuilder.supplySetFilterValues("portfolio");
+        long statements = CountingDriver.countStatements(() -> assertThat(queryBuilder.supplySetFilterValues("portfolio")).isEqualTo(first));
+
+        assertThat(first).hasSize(8);
+        assertThat(statements).isZero();
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getEstimatedBytes()).isPositive();
+    }
+
+    @Test
+    void invalidatedColumnIsLoadedAgain() {
+        SetFilterValuesCache cache = new SetFilterValuesCache(10, null, null);
+        QueryBuilder<Trade, Long, Void> queryBuilder = config(cache).build();
+        queryBuilder.supplySetFilterValues("portfolio");
+        queryBuilder.supplySetFilterValues("submitterId");
+
+        queryBuilder.invalidateSetFilterValues("portfolio");
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(CountingDriver.countStatements(() -> queryBuilder.supplySetFilterValues("portfolio"))).isEqualTo(1);
+        assertThat(CountingDriver.countStatements(() -> queryBuilder.supplySetFilterValues("submitterId"))).isZero();
+
+        queryBuilder.invalidateSetFilterValues();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getEstimatedBytes()).isZero();
+    }
+
+    @Test
+    void contextKeepsValuesOfAlwaysAppliedPredicateApart() {
+        AtomicReference<String> tenant = new AtomicReference<>("alpha");
+        QueryBuilder<Trade, Long, Void> queryBuilder = config(new SetFilterValuesCache(10, null, null))
+                .alwaysAppliedPredicate((cb, root) -> cb.equal(cb.lower(root.get(Trade_.portfolio)), tenant.get()))
+                .setFilterValuesCacheContext(tenant::get)
+                .build();
+
+        assertThat(queryBuilder.supplySetFilterValues("portfolio")).containsExactlyInAnyOrder("Alpha", "alpha");
+        tenant.set("beta");
+        assertThat(queryBuilder.supplySetFilterValues("portfolio")).containsExactlyInAnyOrder("Beta", "BETA");
+        tenant.set("alpha");
+        assertThat(CountingDriver.countStatements(() -> queryBuilder.supplySetFilterValues("portfolio"))).isZero();
+    }
+
+    @Test
+    void alwaysAppliedPredicateWithoutContextIsNotCached() {
+        AtomicReference<String> tenant = new AtomicReference<>("alpha");
+        SetFilterValuesCache cache = new SetFilterValuesCache(10, null, null);
+        QueryBuilder<Trade, Long, Void> queryBuilder = config(cache)
+                .alwaysAppliedPredicate((cb, root) -> cb.equal(cb.lower(root.get(Trade_.portfolio)), tenant.get()))
+                .build();
+
+        assertThat(queryBuilder.supplySetFilterValues("portfolio")).containsExactlyInAnyOrder("Alpha", "alpha");
+        tenant.set("beta");
+        assertThat(queryBuilder.supplySetFilterValues("portfolio")).containsExactlyInAnyOrder("Beta", "BETA");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void leastRecentlyUsedValuesAreEvicted() {
+        SetFilterValuesCache cache = new SetFilterValuesCache(1, null, null);
+        QueryBuilder<Trade, Long, Void> queryBuilder = config(cache).build();
+
+        queryBuilder.supplySetFilterValues("portfolio");
+        queryBuilder.supplySetFilterValues("submitterId");
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(CountingDriver.countStatements(() -> queryBuilder.supplySetFilterValues("portfolio"))).isEqualTo(1);
+    }
+
+    @Test
+    void valuesOverTheByteBoundEvictTheOthers() {
+        SetFilterValuesCache cache = new SetFilterValuesCache(10, 1L, null);
+        QueryBuilder<Trade, Long, Void> queryBuilder = config(cache).build();
+
+        queryBuilder.supplySetFilterValues("portfolio");
+        queryBuilder.supplySetFilterValues("submitterId");
+
+        // the entry just loaded is kept even when it alone is over the bound
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(CountingDriver.countStatements(() -> queryBuilder.supplySetFilterValues("submitterId"))).isZero();
+    }
+
+    @Test
+    void expiredValuesAreLoadedAgain() throws InterruptedException {
+        SetFilterValuesCache cache = new SetFilterValuesCache(10, null, Duration.ofMillis(1));
+        QueryBuilder<Trade, Long, Void> queryBuilder = config(cache).build();
+        queryBuilder.supplySetFilterValues("portfolio");
+
+        Thread.sleep(10);
+
+        assertThat(CountingDriver.countStatements(() -> queryBuilder.supplySetFilterValues("portfolio"))).isEqualTo(1);
+        assertThat(cache.getHitCount()).isZero();
+    }
+
+    @Test
+    void callersGetTheirOwnCopyOfCachedValues() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config(new SetFilterValuesCache(10, null, null)).build();
+        List<Object> values = queryBuilder.supplySetFilterValues("portfolio");
+
+        values.add("Zeta");
+
+        assertThat(queryBuilder.supplySetFilterValues("portfolio")).hasSize(8).doesNotContain("Zeta");
+    }
+
+    @Test
+    void queryBuildersSharingTheCacheKeepTheirOwnValues() {
+        SetFilterValuesCache cache = new SetFilterValuesCache(10, null, null);
+        // the same context, only the query builders tell the values apart
+        QueryBuilder<Trade, Long, Void> alpha = config(cache)
+                .alwaysAppliedPredicate((cb, root) -> cb.equal(cb.lower(root.get(Trade_.portfolio)), "alpha"))
+                .setFilterValuesCacheContext(() -> "fixed")
+                .build();
+        QueryBuilder<Trade, Long, Void> beta = config(cache)
+                .alwaysAppliedPredicate((cb, root) -> cb.equal(cb.lower(root.get(Trade_.portfolio)), "beta"))
+                .setFilterValuesCacheContext(() -> "fixed")
+                .build();
+
+        assertThat(alpha.supplySetFilterValues("portfolio")).containsExactlyInAnyOrder("Alpha", "alpha");
+        assertThat(beta.supplySetFilterValues("portfolio")).containsExactlyInAnyOrder("Beta", "BETA");
+        assertThat(cache.size()).isEqualTo(2);
+
+        // values of the entity changed, every query builder loads them again
+        alpha.invalidateSetFilterValues("portfolio");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void boundsMustBePositive() {
+        assertThatThrownBy(() -> new SetFilterValuesCache(0, null, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SetFilterValuesCache(10, 0L, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SetFilterValuesCache(10, null, Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.exceptions.InvalidRequestException;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.AgSetColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.query.cache.SetFilterValuesCache;
+import io.github.smolcan.aggrid.jpa.adapter.request.SetFilterValuesRequest;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import io.github.smolcan.aggrid.jpa.adapter.test.infrastructure.CountingDriver;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SetFilterValuesSearchTest extends ScenarioTestBase {
+
+    private QueryBuilder.Builder<Trade, Long, Void> config() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).filter(AgSetColumnFilter.forString()).build(),
+                        ColDef.builder(Trade_.submitterId).filter(AgSetColumnFilter.forNumber()).build()
+                );
+    }
+
+    private static SetFilterValuesRequest.SetFilterValuesRequestBuilder search(String field, String searchText) {
+        return SetFilterValuesRequest.builder().field(field).searchText(searchText);
+    }
+
+    @Test
+    void searchMatchesCaseInsensitivelyByDefault() {
+        List<Object> values = config().build().supplySetFilterValues(search("portfolio", "AL").build());
+
+        assertThat(values).containsExactlyInAnyOrder("Alpha", "alpha");
+    }
+
+    @Test
+    void caseSensitiveSearch() {
+        List<Object> values = config().build().supplySetFilterValues(search("portfolio", "Al").caseSensitive(true).build());
+
+        assertThat(values).containsExactly("Alpha");
+    }
+
+    @Test
+    void startsWithSearch() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+
+        assertThat(queryBuilder.supplySetFilterValues(search("portfolio", "e").build()))
+                .containsExactlyInAnyOrder("Beta", "BETA", "delta", "Delta", "Epsilon");
+        assertThat(queryBuilder.supplySetFilterValues(search("portfolio", "e").startsWith(true).build()))
+                .containsExactly("Epsilon");
+    }
+
+    @Test
+    void numberColumnsCannotBeSearched() {
+        // the text form of a number differs between databases
+        assertThatThrownBy(() -> config().build().supplySetFilterValues(search("submitterId", "11").build()))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("submitterId");
+    }
+
+    @Test
+    void pagesAddUpToAllValues() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+        List<Object> all = queryBuilder.supplySetFilterValues("submitterId");
+
+        List<Object> paged = new ArrayList<>();
+        for (int offset = 0; offset < all.size(); offset += 3) {
+            List<Object> page = queryBuilder.supplySetFilterValues(
+                    SetFilterValuesRequest.builder().field("submitterId").offset(offset).limit(3).build());
+            assertThat(page).hasSizeLessThanOrEqualTo(3);
+            paged.addAll(page);
+        }
+
+        assertThat(paged).containsExactlyElementsOf(all);
+    }
+
+    @Test
+    void searchedValuesAreLimited() {
+        List<Object> values = config().build().supplySetFilterValues(search("portfolio", "a").limit(2).build());
+
+        assertThat(values).hasSize(2);
+    }
+
+    @Test
+    void zeroLimitRunsNoQuery() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+
+        long statements = CountingDriver.countStatements(() -> assertThat(
+                queryBuilder.supplySetFilterValues(search("portfolio", "a").limit(0).build())).isEmpty());
+
+        assertThat(statements).isZero();
+    }
+
+    @Test
+    void requestForAllValuesUsesTheCache() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().setFilterValuesCache(new SetFilterValuesCache(10, null, null)).build();
+        queryBuilder.supplySetFilterValues("portfolio");
+
+        assertThat(CountingDriver.countStatements(() -> queryBuilder.supplySetFilterValues(search("portfolio", "").build()))).isZero();
+        assertThat(CountingDriver.countStatements(() -> queryBuilder.supplySetFilterValues(search("portfolio", "a").build()))).isEqualTo(1);
+    }
+
+    @Test
+    void negativePagingIsRejected() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().build();
+
+        assertThatThrownBy(() -> queryBuilder.supplySetFilterValues(search("portfolio", "a").offset(-1).build()))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> queryBuilder.supplySetFilterValues(search("portfolio", "a").limit(-1).build()))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+}
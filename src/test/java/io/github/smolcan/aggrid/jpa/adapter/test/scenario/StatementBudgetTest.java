@@ -0,0 +1,134 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.exceptions.StatementBudgetExceededException;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder.MasterDetailParams;
+import io.github.smolcan.aggrid.jpa.adapter.query.StatementBudgetAction;
+import io.github.smolcan.aggrid.jpa.adapter.query.metrics.QueryMetrics;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import io.github.smolcan.aggrid.jpa.adapter.test.infrastructure.CountingDriver;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatementBudgetTest extends ScenarioTestBase {
+
+    private QueryBuilder.Builder<Trade, Long, Void> config() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).build()
+                )
+                .grandTotalRow(true)
+                .includeRowCountInLoadSuccessParams(true);
+    }
+
+    /** Rows, grand total and row count: three statements. */
+    private ServerSideGetRowsRequest threeStatementRequest() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 5);
+        request.setNeedsGrandTotal(true);
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+        return request;
+    }
+
+    @Test
+    void requestWithinBudgetRuns() {
+        LoadSuccessParams result = config().maxStatementsPerRequest(3).build().getRows(threeStatementRequest());
+
+        assertThat(result.getRowData()).hasSize(5);
+        assertThat(result.getRowCount()).isEqualTo(12);
+    }
+
+    @Test
+    void nestedCallsCountTowardsTheOuterRequest() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().maxStatementsPerRequest(2).build();
+
+        assertThatThrownBy(() -> queryBuilder.getRows(threeStatementRequest()))
+                .isInstanceOfSatisfying(StatementBudgetExceededException.class, e -> {
+                    assertThat(e.getLimit()).isEqualTo(2);
+                    assertThat(e.getActualStatements()).isEqualTo(3);
+                });
+    }
+
+    @Test
+    void statementOverTheBudgetIsNeverSent() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().maxStatementsPerRequest(2).build();
+
+        long statements = CountingDriver.countStatements(() -> {
+            try {
+                queryBuilder.getRows(threeStatementRequest());
+            } catch (StatementBudgetExceededException ignored) {
+                // expected
+            }
+        });
+        assertThat(statements).isEqualTo(2);
+    }
+
+    @Test
+    void budgetIsPerRequestNotPerQueryBuilder() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = config().maxStatementsPerRequest(3).build();
+
+        queryBuilder.getRows(threeStatementRequest());
+        LoadSuccessParams second = queryBuilder.getRows(threeStatementRequest());
+        assertThat(second.getRowData()).hasSize(5);
+    }
+
+    @Test
+    void logActionReturnsTheFullResult() {
+        LoadSuccessParams result = config()
+                .maxStatementsPerRequest(1)
+                .statementBudgetAction(StatementBudgetAction.LOG)
+                .build()
+                .getRows(threeStatementRequest());
+
+        assertThat(result.getRowData()).hasSize(5);
+        assertThat(result.getGrandTotalData()).containsKey("currentValue");
+        assertThat(result.getRowCount()).isEqualTo(12);
+    }
+
+    @Test
+    void budgetCatchesDetailFetchedPerMasterRow() {
+        // dynamic params fall back to one detail query per master row: 1 + 3 products
+        QueryBuilder<Product, Long, Trade> queryBuilder = QueryBuilder.builder(Product.class, Product_.productId, Trade.class, entityManager)
+                .colDefs(
+                        ColDef.builder(Product_.productId).build(),
+                        ColDef.builder(Product_.name).build()
+                )
+                .dynamicMasterDetailParams(masterRow -> MasterDetailParams.<Product, Long, Trade>builder()
+                        .detailClass(Trade.class)
+                        .detailColDefs(ColDef.builder(Trade_.tradeId).build())
+                        .detailMasterReferenceField(Trade_.product)
+                        .build())
+                .masterDetailLazy(false)
+                .masterDetailRowDataFieldName("detailRows")
+                .maxStatementsPerRequest(2)
+                .build();
+
+        assertThatThrownBy(() -> queryBuilder.getRows(emptyRequest(0, 100)))
+                .isInstanceOf(StatementBudgetExceededException.class);
+    }
+
+    @Test
+    void metricsReportTheStatementCount() {
+        List<QueryMetrics> recorded = new ArrayList<>();
+        config().queryMetricsListener(recorded::add).build().getRows(threeStatementRequest());
+
+        assertThat(recorded.get(0).getStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void budgetMustBePositive() {
+        assertThatThrownBy(() -> config().maxStatementsPerRequest(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
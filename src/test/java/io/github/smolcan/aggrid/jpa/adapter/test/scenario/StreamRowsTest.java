@@ -0,0 +1,94 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.request.SortDirection;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamRowsTest extends ScenarioTestBase {
+
+    private QueryBuilder.Builder<Trade, Long, Void> config() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).enableRowGroup(true, key -> key).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).build()
+                )
+                .streamFetchSize(5);
+    }
+
+    private static List<Long> ids(Stream<Map<String, Object>> rows) {
+        return rows.map(row -> ((Number) row.get("tradeId")).longValue()).collect(Collectors.toList());
+    }
+
+    @Test
+    void streamsEveryRowIgnoringTheWindow() {
+        try (Stream<Map<String, Object>> rows = config().build().streamRows(sortedByIdRequest(0, 5))) {
+            assertThat(ids(rows)).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L);
+        }
+    }
+
+    @Test
+    void streamAppliesFiltersAndSort() {
+        ServerSideGetRowsRequest request = emptyRequest(0, 0);
+        request.setFilterModel(Map.of("portfolio", filter("contains", "alpha")));
+        request.getSortModel().add(sortItem("tradeId", SortDirection.desc));
+
+        try (Stream<Map<String, Object>> rows = config().build().streamRows(request)) {
+            assertThat(ids(rows)).containsExactly(3L, 2L, 1L);
+        }
+    }
+
+    @Test
+    void streamsGroupRows() {
+        ServerSideGetRowsRequest request = emptyRequest(0, 0);
+        request.setFilterModel(new HashMap<>());
+        request.getRowGroupCols().add(groupCol("portfolio"));
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+
+        try (Stream<Map<String, Object>> rows = config().build().streamRows(request)) {
+            assertThat(rows.map(row -> row.get("portfolio"))).hasSize(8);
+        }
+    }
+
+    @Test
+    void entityManagerFromTheSupplierIsClosedWithTheStream() {
+        List<EntityManager> supplied = new ArrayList<>();
+        QueryBuilder<Trade, Long, Void> queryBuilder = QueryBuilder.builder(Trade.class, Trade_.tradeId)
+                .colDefs(ColDef.builder(Trade_.tradeId).build())
+                .entityManagerSupplier(() -> {
+                    EntityManager em = entityManagerFactory.createEntityManager();
+                    supplied.add(em);
+                    return em;
+                })
+                .build();
+
+        Stream<Map<String, Object>> rows = queryBuilder.streamRows(sortedByIdRequest(0, 5));
+        // still open while the rows are read
+        assertThat(supplied).hasSize(1).allMatch(EntityManager::isOpen);
+        assertThat(ids(rows)).hasSize(12);
+
+        rows.close();
+        assertThat(supplied).noneMatch(EntityManager::isOpen);
+    }
+
+    @Test
+    void fetchSizeMustBePositive() {
+        assertThatThrownBy(() -> config().streamFetchSize(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.exceptions.InvalidRequestException;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.response.LoadSuccessParams;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ThreadSafeQueryBuilderTest extends ScenarioTestBase {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final List<EntityManager> suppliedEntityManagers = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    private QueryBuilder.Builder<Trade, Long, Void> template() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).build(),
+                        ColDef.builder(Trade_.portfolio).enableRowGroup(true, key -> key).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).build()
+                );
+    }
+
+    private static ServerSideGetRowsRequest alphaRequest() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 100);
+        request.setFilterModel(Map.of("portfolio", filter("contains", "alpha")));
+        return request;
+    }
+
+    @Test
+    void templateRunsOnTheEntityManagerOfTheCall() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = template().build();
+
+        assertThat(tradeIds(queryBuilder.getRows(alphaRequest(), entityManager))).containsExactly(1L, 2L, 3L);
+        assertThat(queryBuilder.countRows(alphaRequest(), entityManager)).isEqualTo(3);
+        assertThat(entityManager.isOpen()).isTrue();
+    }
+
+    @Test
+    void templateTakesAndClosesAnEntityManagerFromTheSupplier() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = template()
+                .entityManagerSupplier(() -> {
+                    EntityManager em = entityManagerFactory.createEntityManager();
+                    suppliedEntityManagers.add(em);
+                    return em;
+                })
+                .build();
+
+        assertThat(tradeIds(queryBuilder.getRows(alphaRequest()))).containsExactly(1L, 2L, 3L);
+        assertThat(suppliedEntityManagers).hasSize(1).noneMatch(EntityManager::isOpen);
+    }
+
+    @Test
+    void templateIsSharedBetweenThreads() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = template().build();
+        List<CompletableFuture<LoadSuccessParams>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int startRow = i % 12;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try (EntityManager em = entityManagerFactory.createEntityManager()) {
+                    return queryBuilder.getRows(sortedByIdRequest(startRow, 12), em);
+                }
+            }, executor));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertThat(futures.get(i).join().getRowData()).hasSize(12 - i % 12);
+        }
+    }
+
+    @Test
+    void callWithoutAnyEntityManagerFails() {
+        QueryBuilder<Trade, Long, Void> queryBuilder = template().build();
+
+        assertThatThrownBy(() -> queryBuilder.getRows(alphaRequest()))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void reusingTheBuilderDoesNotChangeBuiltQueryBuilders() {
+        QueryBuilder.Builder<Trade, Long, Void> builder = template();
+        QueryBuilder<Trade, Long, Void> queryBuilder = builder.build();
+        builder.registerCustomAggFunction("spread", (cb, expr) -> expr);
+
+        ServerSideGetRowsRequest request = alphaRequest();
+        request.getValueCols().add(valueCol("currentValue", "spread"));
+        request.getRowGroupCols().add(groupCol("portfolio"));
+
+        assertThatThrownBy(() -> queryBuilder.getRows(request, entityManager))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("spread");
+    }
+}
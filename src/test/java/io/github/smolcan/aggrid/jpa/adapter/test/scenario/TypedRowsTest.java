@@ -0,0 +1,116 @@
+package io.github.smolcan.aggrid.jpa.adapter.test.scenario;
+
+import io.github.smolcan.aggrid.jpa.adapter.column.ColDef;
+import io.github.smolcan.aggrid.jpa.adapter.column.FieldPath;
+import io.github.smolcan.aggrid.jpa.adapter.filter.provided.simple.AgTextColumnFilter;
+import io.github.smolcan.aggrid.jpa.adapter.query.QueryBuilder;
+import io.github.smolcan.aggrid.jpa.adapter.request.ServerSideGetRowsRequest;
+import io.github.smolcan.aggrid.jpa.adapter.response.TypedLoadSuccessParams;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Product_;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade;
+import io.github.smolcan.aggrid.jpa.adapter.test.entity.Trade_;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TypedRowsTest extends ScenarioTestBase {
+
+    @Getter
+    @Setter
+    public static class TradeRow {
+        private Long tradeId;
+        private String portfolio;
+        private Integer submitterId;
+        private String productName;
+        private BigDecimal currentValue;
+    }
+
+    // no setters, filled through the fields
+    public static class PortfolioRow {
+        String portfolio;
+        double currentValue;
+        Integer tradeId;
+    }
+
+    public static class NoDefaultConstructor {
+        public NoDefaultConstructor(String portfolio) {
+        }
+    }
+
+    private QueryBuilder<Trade, Long, Void> queryBuilder() {
+        return QueryBuilder.builder(Trade.class, Trade_.tradeId, entityManager)
+                .colDefs(
+                        ColDef.builder(Trade_.tradeId).enableValue(true).build(),
+                        ColDef.builder(Trade_.portfolio).enableRowGroup(true, key -> key).filter(new AgTextColumnFilter()).build(),
+                        ColDef.builder(Trade_.submitterId).build(),
+                        ColDef.builder(FieldPath.of(Trade_.product).to(Product_.name)).build(),
+                        ColDef.builder(Trade_.currentValue).enableValue(true).build()
+                )
+                .build();
+    }
+
+    @Test
+    void rowsAreInstancesOfTheRowClass() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 100);
+        request.setFilterModel(Map.of("portfolio", filter("contains", "alpha")));
+
+        TypedLoadSuccessParams<TradeRow> result = queryBuilder().getRows(request, TradeRow.class);
+
+        assertThat(result.getRowData()).hasSize(3);
+        TradeRow first = result.getRowData().get(0);
+        assertThat(first.getTradeId()).isEqualTo(1L);
+        assertThat(first.getPortfolio()).isEqualTo("Alpha");
+        assertThat(first.getSubmitterId()).isEqualTo(101);
+        // product.name goes to productName
+        assertThat(first.getProductName()).isEqualTo("Gold");
+        assertThat(first.getCurrentValue()).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void nullValuesStayNull() {
+        TypedLoadSuccessParams<TradeRow> result = queryBuilder().getRows(sortedByIdRequest(4, 5), TradeRow.class);
+
+        // trade 5 has no submitter
+        assertThat(result.getRowData()).singleElement().satisfies(row -> assertThat(row.getSubmitterId()).isNull());
+    }
+
+    @Test
+    void groupRowsAreConvertedToThePropertyTypes() {
+        ServerSideGetRowsRequest request = emptyRequest(0, 100);
+        request.setFilterModel(new HashMap<>());
+        request.getRowGroupCols().add(groupCol("portfolio"));
+        request.getValueCols().add(valueCol("currentValue", "sum"));
+        request.getValueCols().add(valueCol("tradeId", "count"));
+
+        TypedLoadSuccessParams<PortfolioRow> result = queryBuilder().getRows(request, PortfolioRow.class);
+
+        assertThat(result.getRowData()).hasSize(8);
+        PortfolioRow delta = result.getRowData().stream().filter(row -> row.portfolio.equals("Delta")).findFirst().orElseThrow();
+        assertThat(delta.currentValue).isEqualTo(999.99);
+        assertThat(delta.tradeId).isEqualTo(1);
+    }
+
+    @Test
+    void matchesTheRowsOfTheMapResponse() {
+        ServerSideGetRowsRequest request = sortedByIdRequest(0, 12);
+        QueryBuilder<Trade, Long, Void> queryBuilder = queryBuilder();
+
+        TypedLoadSuccessParams<TradeRow> typed = queryBuilder.getRows(request, TradeRow.class);
+
+        assertThat(typed.getRowData()).extracting(TradeRow::getTradeId).containsExactlyElementsOf(tradeIds(queryBuilder.getRows(request)));
+    }
+
+    @Test
+    void rowClassMustBeConstructible() {
+        assertThatThrownBy(() -> queryBuilder().getRows(sortedByIdRequest(0, 1), NoDefaultConstructor.class))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("no-argument constructor");
+    }
+}